@@ -24,25 +24,88 @@
  *
  */
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 public final class PatternExtractionStep
         extends ParallelExtractor<ExtractedPattern> {
 
+  private static Logger logger =
+          LogManager.getLogger(PatternExtractionStep.class);
+
+  private static final int DOCUMENTS_PER_TASK = 256;
+
   private LinkedList<ExtractedPattern> patterns = new LinkedList<>();
   private LinkedList<Instance> seeds;
   private LuceneQueryFramework queryFramework;
 
   private HashSet<String> queriedInstances = new HashSet<>();
+  private boolean seedBatched = false;
+  private PatternStatisticsTable statistics;
+  private ShardCoordinator shards;
 
   public PatternExtractionStep(final LinkedList<Instance> seeds,
-                               final LuceneQueryFramework queryFramework) {
+                               final LuceneQueryFramework queryFramework,
+                               final ExecutorService executor) {
+    super(executor);
     this.seeds = seeds;
     this.queryFramework = queryFramework;
   }
 
+  /*
+    In seed-batched mode, the sentences retrieved by all new seeds are
+    parsed once, and the paths of the seeds with the same cause are
+    extracted together, instead of once per seed. This needs 8 bytes per
+    retrieved (sentence, seed) pair, see extractSeedBatched.
+   */
+  public void setSeedBatched(final boolean seedBatched) {
+    this.seedBatched = seedBatched;
+  }
+
+  /*
+    In concurrent-statistics mode, the extraction tasks record the found
+    patterns in a shared PatternStatisticsTable (see getStatistics) as
+    they finish, and getPatterns stays empty. Must be set before the
+    first extraction.
+   */
+  public void setConcurrentStatistics(final boolean concurrentStatistics) {
+    statistics = concurrentStatistics || shards != null
+            ? new PatternStatisticsTable()
+            : null;
+    setRecorder(statistics == null ? null : statistics::record);
+  }
+
+  /*
+    In sharded mode, the patterns are extracted by the ShardWorkers of the
+    index shards instead of from a local index, and their statistics are
+    always merged into a PatternStatisticsTable (see getStatistics).
+   */
+  public void setShards(final ShardCoordinator shards) {
+    this.shards = shards;
+    if (statistics == null) {
+      statistics = new PatternStatisticsTable();
+    }
+  }
+
   public void extract() {
+    if (shards != null) {
+      extractFromShards();
+      return;
+    }
+    if (seedBatched) {
+      extractSeedBatched();
+      return;
+    }
     startThreads();
     joinResults();
   }
@@ -52,21 +115,82 @@ public final class PatternExtractionStep
       if (queriedInstances.contains(instance.toString())) {
         continue;
       }
-      PatternExtractor p = new PatternExtractor(
-              instance,
-              getSentences(instance)
-      );
+      // the sentences are retrieved by the extractor
+      PatternExtractor p = new PatternExtractor(instance, queryFramework);
       submit(p);
       queriedInstances.add(instance.toString());
     }
   }
 
-  private LinkedList<PreprocessedSentence> getSentences(
-          final Instance instance) {
-    return queryFramework.instanceQuery(
-            instance.getCause(),
-            instance.getEffect()
-    );
+  private void extractFromShards() {
+    LinkedList<Instance> newSeeds = new LinkedList<>();
+    for (Instance instance : seeds) {
+      if (queriedInstances.add(instance.toString())) {
+        newSeeds.add(instance);
+      }
+    }
+    shards.extractPatterns(newSeeds, statistics);
+  }
+
+  /*
+    Extracts the patterns of chunks of seeds retrieving at most
+    DocIdPairs.MAX_PAIRS sentences, one chunk after another, so that the
+    memory of the pairs is bounded. A seed retrieving more sentences is
+    extracted on its own, like without seed-batched mode.
+   */
+  private void extractSeedBatched() {
+    LinkedList<Instance> newSeeds = new LinkedList<>();
+    for (Instance instance : seeds) {
+      if (queriedInstances.add(instance.toString())) {
+        newSeeds.add(instance);
+      }
+    }
+    Instance[] batch = newSeeds.toArray(new Instance[0]);
+
+    int[] counts = new int[batch.length];
+    List<Runnable> queries = new ArrayList<>();
+    for (int i = 0; i < batch.length; i++) {
+      Instance seed = batch[i];
+      int index = i;
+      queries.add(() -> counts[index] = queryFramework.countInstanceQuery(
+              seed.getCause(), seed.getEffect()));
+    }
+    runAll(queries);
+
+    for (int[] chunk : DocIdPairs.chunks(counts, DocIdPairs.MAX_PAIRS)) {
+      long nPairs = DocIdPairs.sum(counts, chunk[0], chunk[1]);
+      if (nPairs > DocIdPairs.MAX_PAIRS) {
+        submit(new PatternExtractor(batch[chunk[0]], queryFramework));
+      } else {
+        startSeedBatchedThreads(
+                Arrays.copyOfRange(batch, chunk[0], chunk[1]), (int) nPairs);
+      }
+      joinResults();
+    }
+  }
+
+  private void startSeedBatchedThreads(final Instance[] batch,
+                                       final int nPairs) {
+    // (document, seed) pairs of all retrieved sentences, retrieved
+    // concurrently on the executor
+    DocIdPairs docIdPairs = new DocIdPairs(nPairs);
+    List<Runnable> queries = new ArrayList<>();
+    for (int i = 0; i < batch.length; i++) {
+      Instance seed = batch[i];
+      int index = i;
+      queries.add(() -> queryFramework.instanceQuery(
+              seed.getCause(), seed.getEffect(),
+              (docIds, length) -> docIdPairs.add(docIds, length, index)));
+    }
+    runAll(queries);
+    long[] pairs = docIdPairs.toSortedArray();
+
+    for (int[] range : DocIdPairs.split(pairs, DOCUMENTS_PER_TASK)) {
+      submit(new SeedBatchedPatternExtractor(
+              queryFramework, batch, pairs, range[0], range[1]));
+    }
+    logger.info("Extracting patterns of " + batch.length + " seeds from "
+            + pairs.length + " retrieved (sentence, seed) pairs");
   }
 
   @Override
@@ -77,4 +201,70 @@ public final class PatternExtractionStep
   public LinkedList<ExtractedPattern> getPatterns() {
     return patterns;
   }
+
+  /*
+    Returns null unless in concurrent-statistics or sharded mode.
+   */
+  public PatternStatisticsTable getStatistics() {
+    return statistics;
+  }
+
+  /*
+    Writes the queried seeds and the extracted patterns or their
+    statistics, see Checkpoint.
+   */
+  public void writeCheckpoint(final DataOutput out) throws IOException {
+    Checkpoint.writeStrings(out, queriedInstances);
+    writePatterns(out, patterns);
+    out.writeBoolean(statistics != null);
+    if (statistics != null) {
+      statistics.writeCheckpoint(out);
+    }
+  }
+
+  /*
+    Writes extracted patterns for a checkpoint.
+   */
+  static void writePatterns(final DataOutput out,
+                            final List<ExtractedPattern> extractedPatterns)
+          throws IOException {
+    out.writeInt(extractedPatterns.size());
+    for (ExtractedPattern p : extractedPatterns) {
+      out.writeUTF(p.getPattern());
+      Checkpoint.writeInstance(out, p.getInstance());
+    }
+  }
+
+  /*
+    Reads extracted patterns. Like the extractors, they share the seed
+    instances, which are looked up in and added to the given table.
+   */
+  static void readPatterns(final DataInput in,
+                           final InstanceTable<Instance> seeds,
+                           final List<ExtractedPattern> extractedPatterns)
+          throws IOException {
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      String pattern = in.readUTF();
+      Instance seed = Checkpoint.readInstance(in);
+      Instance shared = seeds.putIfAbsent(seed.getKey(), seed);
+      extractedPatterns.add(new ExtractedPattern(pattern,
+              shared == null ? seed : shared));
+    }
+  }
+
+  public void readCheckpoint(final DataInput in) throws IOException {
+    queriedInstances.clear();
+    Checkpoint.readStrings(in, queriedInstances);
+
+    patterns.clear();
+    readPatterns(in, new InstanceTable<>(), patterns);
+
+    if (in.readBoolean() != (statistics != null)) {
+      throw new IOException("Checkpoint of another statistics mode");
+    }
+    if (statistics != null) {
+      statistics.readCheckpoint(in);
+    }
+  }
 }
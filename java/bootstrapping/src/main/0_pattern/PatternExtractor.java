@@ -31,12 +31,12 @@ public final class PatternExtractor
         implements Callable<LinkedList<ExtractedPattern>> {
 
   private LinkedList<ExtractedPattern> foundPattern;
-  private LinkedList<PreprocessedSentence> sentences;
+  private LuceneQueryFramework queryFramework;
   private Instance instance;
 
   public PatternExtractor(final Instance instance,
-                          final LinkedList<PreprocessedSentence> sentences) {
-    this.sentences = sentences;
+                          final LuceneQueryFramework queryFramework) {
+    this.queryFramework = queryFramework;
     this.instance = instance;
   }
 
@@ -44,15 +44,19 @@ public final class PatternExtractor
   public LinkedList<ExtractedPattern> call() {
     foundPattern = new LinkedList<>();
 
-    for (PreprocessedSentence sentence : sentences) {
-      extractTreePattern(sentence.getDependencies());
+    try (SentenceStream sentences = queryFramework.streamInstanceQuery(
+            instance.getCause(),
+            instance.getEffect()
+    )) {
+      while (sentences.hasNext()) {
+        extractTreePattern(sentences.next());
+      }
     }
-    sentences.clear();
     return foundPattern;
   }
 
-  private void extractTreePattern(final String dependencies) {
-    DiGraph tree = new DiGraph(dependencies);
+  private void extractTreePattern(final PreprocessedSentence sentence) {
+    DiGraph tree = sentence.toGraph();
     String path = PathExtractor.extract(tree, instance);
 
     if (path == null) {
@@ -62,4 +66,9 @@ public final class PatternExtractor
     ExtractedPattern p = new ExtractedPattern(path, instance);
     foundPattern.add(p);
   }
+
+  @Override
+  public String toString() {
+    return "seed " + instance;
+  }
 }
@@ -24,6 +24,10 @@
  *
  */
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 
@@ -40,12 +44,14 @@ public final class PatternSelector {
   private LinkedList<PatternStatistic> statistics;
 
   private LinkedList<PathPattern> selected;
+  private HashMap<String, LinkedList<PathPattern>> selectedByCanonicalKey;
   private int numSelectedPatternLastIteration = 0;
 
   public PatternSelector() {
     fastSearch = new HashMap<>();
     statistics = new LinkedList<>();
     selected = new LinkedList<>();
+    selectedByCanonicalKey = new HashMap<>();
   }
 
   public void select(final LinkedList<ExtractedPattern> positivePattern) {
@@ -54,9 +60,23 @@ public final class PatternSelector {
     positivePattern.sort(ExtractedPattern::compareLength);
     addPattern(positivePattern);
 
+    selectFromStatistics(PatternStatistic::compareSupport);
+  }
+
+  /*
+    Selects from statistics aggregated during the extraction, see
+    PatternExtractionStep.setConcurrentStatistics.
+   */
+  public void select(final PatternStatisticsTable table) {
+    clear();
+    statistics.addAll(table.getStatistics());
+    selectFromStatistics(PatternStatistic::compareSupportAndPattern);
+  }
+
+  private void selectFromStatistics(final Comparator<PatternStatistic> order) {
     statistics.removeIf(PatternSelectionRules::canDelete);
     statistics.removeIf(s -> s.getSupport() < 2);
-    statistics.sort(PatternStatistic::compareSupport);
+    statistics.sort(order);
 
     logger.info("Total patterns found: " + statistics.size());
     selectPattern();
@@ -81,6 +101,8 @@ public final class PatternSelector {
 
       if (!containsReversed(newPattern)) {
         selected.add(newPattern);
+        selectedByCanonicalKey.computeIfAbsent(newPattern.getCanonicalKey(),
+                k -> new LinkedList<>()).add(newPattern);
       }
     }
   }
@@ -90,7 +112,13 @@ public final class PatternSelector {
   }
 
   private boolean containsReversed(final PathPattern pattern) {
-    for (PathPattern p : selected) {
+    // only patterns with the same canonical key can be reverses
+    LinkedList<PathPattern> candidates =
+            selectedByCanonicalKey.get(pattern.getCanonicalKey());
+    if (candidates == null) {
+      return false;
+    }
+    for (PathPattern p : candidates) {
       if (pattern.isReverseOf(p)) {
         return true;
       }
@@ -102,6 +130,7 @@ public final class PatternSelector {
     fastSearch.clear();
     statistics.clear();
     selected.clear();
+    selectedByCanonicalKey.clear();
   }
 
   private void addPattern(final LinkedList<ExtractedPattern> pattern) {
@@ -121,4 +150,12 @@ public final class PatternSelector {
     return selected;
   }
 
+  public void writeCheckpoint(final DataOutput out) throws IOException {
+    out.writeInt(numSelectedPatternLastIteration);
+  }
+
+  public void readCheckpoint(final DataInput in) throws IOException {
+    numSelectedPatternLastIteration = in.readInt();
+  }
+
 }
@@ -24,13 +24,15 @@
  *
  */
 
-import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class PatternStatistic {
 
   private ExtractedPattern representative;
 
-  private HashMap<Instance, Integer> seedList = new HashMap<>();
+  private ConcurrentHashMap<Instance, Integer> seedList =
+          new ConcurrentHashMap<>();
 
   public PatternStatistic(final ExtractedPattern representative) {
     this.representative = representative;
@@ -41,19 +43,39 @@ public final class PatternStatistic {
     return seedList.keySet().size();
   }
 
+  public Set<Instance> getSeeds() {
+    return seedList.keySet();
+  }
+
   public void updateSeeds(final ExtractedPattern extractedPattern) {
-    if (!seedList.containsKey(extractedPattern.getInstance())) {
-      seedList.put(extractedPattern.getInstance(), 1);
-    } else {
-      int value = seedList.get(extractedPattern.getInstance());
-      seedList.put(extractedPattern.getInstance(), value + 1);
-    }
+    seedList.merge(extractedPattern.getInstance(), 1, Integer::sum);
   }
 
   public int compareSupport(final PatternStatistic patternStatistic) {
     return -Integer.compare(getSupport(), patternStatistic.getSupport());
   }
 
+  /*
+    Orders by support and, for equal support, by shorter and then
+    lexicographically smaller pattern, independent of the order in which
+    the patterns were extracted.
+   */
+  public static int compareSupportAndPattern(
+          final PatternStatistic patternStatistic,
+          final PatternStatistic patternStatistic1) {
+    int cmp = patternStatistic.compareSupport(patternStatistic1);
+    if (cmp != 0) {
+      return cmp;
+    }
+    cmp = ExtractedPattern.compareLength(patternStatistic.representative,
+            patternStatistic1.representative);
+    if (cmp != 0) {
+      return cmp;
+    }
+    return patternStatistic.representative.getPattern().compareTo(
+            patternStatistic1.representative.getPattern());
+  }
+
   public ExtractedPattern getRepresentative() {
     return representative;
   }
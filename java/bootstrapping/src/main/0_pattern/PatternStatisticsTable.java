@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+  Statistics of all extracted patterns, updated concurrently by the
+  extraction tasks as they finish, instead of being aggregated from the
+  joined results by the PatternSelector.
+ */
+public final class PatternStatisticsTable {
+
+  private ConcurrentHashMap<String, PatternStatistic> statistics =
+          new ConcurrentHashMap<>();
+
+  public void record(final ExtractedPattern extractedPattern) {
+    PatternStatistic statistic =
+            statistics.get(extractedPattern.getPattern());
+    if (statistic == null) {
+      PatternStatistic created = new PatternStatistic(extractedPattern);
+      statistic = statistics.putIfAbsent(
+              extractedPattern.getPattern(), created);
+      if (statistic == null) {
+        return;
+      }
+    }
+    statistic.updateSeeds(extractedPattern);
+  }
+
+  public Collection<PatternStatistic> getStatistics() {
+    return statistics.values();
+  }
+
+  /*
+    Writes the patterns with their seeds, see Checkpoint and ShardWorker.
+   */
+  public void writeCheckpoint(final DataOutput out) throws IOException {
+    out.writeInt(statistics.size());
+    for (PatternStatistic statistic : statistics.values()) {
+      out.writeUTF(statistic.getRepresentative().getPattern());
+      out.writeInt(statistic.getSeeds().size());
+      for (Instance seed : statistic.getSeeds()) {
+        Checkpoint.writeInstance(out, seed);
+      }
+    }
+  }
+
+  public void readCheckpoint(final DataInput in) throws IOException {
+    statistics.clear();
+    merge(in, new InstanceTable<>());
+  }
+
+  /*
+    Adds the patterns and seeds written by writeCheckpoint, e.g., by
+    another index shard. Like the extractors, the patterns share the seed
+    instances, which are looked up in and added to the given table. Can be
+    called concurrently with different seed tables.
+   */
+  public void merge(final DataInput in, final InstanceTable<Instance> seeds)
+          throws IOException {
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      String pattern = in.readUTF();
+      int n = in.readInt();
+      for (int j = 0; j < n; j++) {
+        Instance seed = Checkpoint.readInstance(in);
+        Instance shared = seeds.putIfAbsent(seed.getKey(), seed);
+        record(new ExtractedPattern(pattern, shared == null ? seed : shared));
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+
+/*
+  Extracts patterns from a range of sorted (document, seed) pairs, see
+  PatternExtractionStep and DocIdPairs. The graph of each document is
+  loaded and parsed once, and the paths of all seeds with the same cause
+  that retrieved it are extracted with one search from the cause node.
+ */
+public final class SeedBatchedPatternExtractor
+        implements Callable<LinkedList<ExtractedPattern>> {
+
+  private LuceneQueryFramework queryFramework;
+  private Instance[] seeds;
+  private long[] pairs;
+  private int from;
+  private int to;
+
+  public SeedBatchedPatternExtractor(
+          final LuceneQueryFramework queryFramework,
+          final Instance[] seeds,
+          final long[] pairs,
+          final int from,
+          final int to) {
+    this.queryFramework = queryFramework;
+    this.seeds = seeds;
+    this.pairs = pairs;
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  public LinkedList<ExtractedPattern> call() {
+    LinkedList<ExtractedPattern> foundPattern = new LinkedList<>();
+
+    int i = from;
+    while (i < to) {
+      int end = DocIdPairs.documentEnd(pairs, i, to);
+
+      LinkedHashMap<String, LinkedList<Instance>> seedsByCause =
+              new LinkedHashMap<>();
+      for (int j = i; j < end; j++) {
+        Instance seed = seeds[DocIdPairs.index(pairs[j])];
+        seedsByCause.computeIfAbsent(seed.getCause(), c -> new LinkedList<>())
+                .add(seed);
+      }
+
+      try {
+        DiGraph tree = queryFramework.loadSentence(
+                DocIdPairs.docId(pairs[i])).toGraph();
+        for (LinkedList<Instance> causeSeeds : seedsByCause.values()) {
+          String[] paths = PathExtractor.extract(tree, causeSeeds);
+          int k = 0;
+          for (Instance seed : causeSeeds) {
+            if (paths[k] != null) {
+              foundPattern.add(new ExtractedPattern(paths[k], seed));
+            }
+            k++;
+          }
+        }
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      i = end;
+    }
+
+    return foundPattern;
+  }
+
+  @Override
+  public String toString() {
+    return "pairs " + from + " to " + to;
+  }
+}
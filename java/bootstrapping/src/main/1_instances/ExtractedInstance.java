@@ -28,15 +28,16 @@ import org.apache.commons.lang3.StringUtils;
 
 public final class ExtractedInstance {
 
-  private String sentence;
+  private int docId;
   private PathPattern pattern;
 
   private String cause;
   private String effect;
+  private long key;
 
-  public ExtractedInstance(final String sentence,
+  public ExtractedInstance(final int docId,
                            final PathPattern pattern) {
-    this.sentence = sentence;
+    this.docId = docId;
     this.pattern = pattern;
   }
 
@@ -44,6 +45,7 @@ public final class ExtractedInstance {
                            final String effect) {
     this.cause = StringUtils.lowerCase(cause.trim());
     this.effect = StringUtils.lowerCase(effect.trim());
+    this.key = Instance.key(this.cause, this.effect);
   }
 
   public String getCause() {
@@ -54,12 +56,23 @@ public final class ExtractedInstance {
     return effect;
   }
 
+  /*
+    See Instance.key.
+   */
+  public long getKey() {
+    return key;
+  }
+
   public PathPattern getPattern() {
     return pattern;
   }
 
-  public String getSentence() {
-    return sentence;
+  /*
+    Returns the Lucene doc id of the sentence the instance was extracted
+    from.
+   */
+  public int getDocId() {
+    return docId;
   }
 
   @Override
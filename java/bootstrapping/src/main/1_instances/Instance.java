@@ -26,13 +26,41 @@
 
 public final class Instance {
 
+  private static final StringDictionary CONCEPTS = new StringDictionary();
+
   private String cause;
   private String effect;
+  private long key;
 
   public Instance(final String cause,
                   final String effect) {
     this.cause = cause;
     this.effect = effect;
+    this.key = key(cause, effect);
+  }
+
+  /*
+    Packs the dictionary ids of cause and effect into a long that
+    identifies the instance, with the cause in the upper 32 bits.
+   */
+  public static long key(final String cause,
+                         final String effect) {
+    return ((long) CONCEPTS.idOf(cause) << Integer.SIZE)
+            | (CONCEPTS.idOf(effect) & 0xFFFFFFFFL);
+  }
+
+  /*
+    Order-sensitive hash of an instance key (64-bit finalizer of
+    MurmurHash3), so that [a,b] and [b,a] do not collide.
+   */
+  public static int hash(final long key) {
+    long h = key;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) h;
   }
 
   public String getCause() {
@@ -43,18 +71,21 @@ public final class Instance {
     return effect;
   }
 
+  public long getKey() {
+    return key;
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (!(obj instanceof Instance)) {
       return false;
     }
-    Instance cmp = (Instance) obj;
-    return cause.equals(cmp.cause) && effect.equals(cmp.effect);
+    return key == ((Instance) obj).key;
   }
 
   @Override
   public int hashCode() {
-    return cause.hashCode() + effect.hashCode();
+    return hash(key);
   }
 
   @Override
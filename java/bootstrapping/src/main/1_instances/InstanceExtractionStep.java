@@ -24,23 +24,88 @@
  *
  */
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 public final class InstanceExtractionStep
         extends ParallelExtractor<ExtractedInstance> {
 
+  private static Logger logger =
+          LogManager.getLogger(InstanceExtractionStep.class);
+
+  private static final int DOCUMENTS_PER_TASK = 256;
+
   private LinkedList<ExtractedInstance> instances;
   private HashSet<String> queriedPattern;
   private LuceneQueryFramework queryFramework;
+  private boolean sentenceMajor = false;
+  private InstanceStatisticsTable statistics;
+  private ShardCoordinator shards;
 
-  public InstanceExtractionStep(final LuceneQueryFramework queryFramework) {
+  public InstanceExtractionStep(final LuceneQueryFramework queryFramework,
+                                final ExecutorService executor) {
+    super(executor);
     this.queryFramework = queryFramework;
     instances = new LinkedList<>();
     queriedPattern = new HashSet<>();
   }
 
+  /*
+    In sentence-major mode, the sentences retrieved by all patterns of an
+    iteration are parsed once and matched against every pattern that
+    retrieved them, instead of once per pattern. This needs 8 bytes per
+    retrieved (sentence, pattern) pair, see extractSentenceMajor.
+   */
+  public void setSentenceMajor(final boolean sentenceMajor) {
+    this.sentenceMajor = sentenceMajor;
+  }
+
+  /*
+    In concurrent-statistics mode, the extraction tasks record the found
+    instances in a shared InstanceStatisticsTable (see getStatistics) as
+    they finish, and getInstances stays empty. Must be set before the
+    first extraction.
+   */
+  public void setConcurrentStatistics(final boolean concurrentStatistics) {
+    statistics = concurrentStatistics || shards != null
+            ? new InstanceStatisticsTable()
+            : null;
+    setRecorder(statistics == null ? null : statistics::record);
+  }
+
+  /*
+    In sharded mode, the instances are extracted by the ShardWorkers of the
+    index shards instead of from a local index, and their statistics are
+    always merged into an InstanceStatisticsTable (see getStatistics).
+   */
+  public void setShards(final ShardCoordinator shards) {
+    this.shards = shards;
+    if (statistics == null) {
+      statistics = new InstanceStatisticsTable();
+    }
+  }
+
   public void extract(final LinkedList<PathPattern> pattern) {
+    if (shards != null) {
+      extractFromShards(pattern);
+      return;
+    }
+    if (sentenceMajor) {
+      extractSentenceMajor(pattern);
+      return;
+    }
     startThreads(pattern);
     joinResults();
   }
@@ -51,14 +116,81 @@ public final class InstanceExtractionStep
         continue;
       }
 
-      InstanceExtractor s = new InstanceExtractor(p, getSentences(p));
+      // the sentences are retrieved by the extractor
+      InstanceExtractor s = new InstanceExtractor(p, queryFramework);
       submit(s);
       queriedPattern.add(p.getPattern());
     }
   }
 
-  private LinkedList<PreprocessedSentence> getSentences(final PathPattern p) {
-    return queryFramework.patternQuery(p);
+  private void extractFromShards(final LinkedList<PathPattern> pattern) {
+    LinkedList<PathPattern> newPatterns = new LinkedList<>();
+    for (PathPattern p : pattern) {
+      if (queriedPattern.add(p.getPattern())) {
+        newPatterns.add(p);
+      }
+    }
+    shards.extractInstances(newPatterns, statistics);
+  }
+
+  /*
+    Extracts the instances of chunks of patterns retrieving at most
+    DocIdPairs.MAX_PAIRS sentences, one chunk after another, so that the
+    memory of the pairs is bounded. A pattern retrieving more sentences is
+    extracted on its own, like without sentence-major mode.
+   */
+  private void extractSentenceMajor(final LinkedList<PathPattern> pattern) {
+    LinkedList<PathPattern> newPatterns = new LinkedList<>();
+    for (PathPattern p : pattern) {
+      if (queriedPattern.add(p.getPattern())) {
+        newPatterns.add(p);
+      }
+    }
+    PathPattern[] patterns = newPatterns.toArray(new PathPattern[0]);
+
+    int[] counts = new int[patterns.length];
+    List<Runnable> queries = new ArrayList<>();
+    for (int i = 0; i < patterns.length; i++) {
+      PathPattern p = patterns[i];
+      int index = i;
+      queries.add(() -> counts[index] = queryFramework.countPatternQuery(p));
+    }
+    runAll(queries);
+
+    for (int[] chunk : DocIdPairs.chunks(counts, DocIdPairs.MAX_PAIRS)) {
+      long nPairs = DocIdPairs.sum(counts, chunk[0], chunk[1]);
+      if (nPairs > DocIdPairs.MAX_PAIRS) {
+        submit(new InstanceExtractor(patterns[chunk[0]], queryFramework));
+      } else {
+        startSentenceMajorThreads(
+                Arrays.copyOfRange(patterns, chunk[0], chunk[1]),
+                (int) nPairs);
+      }
+      joinResults();
+    }
+  }
+
+  private void startSentenceMajorThreads(final PathPattern[] patterns,
+                                         final int nPairs) {
+    // (document, pattern) pairs of all retrieved sentences, retrieved
+    // concurrently on the executor
+    DocIdPairs docIdPairs = new DocIdPairs(nPairs);
+    List<Runnable> queries = new ArrayList<>();
+    for (int i = 0; i < patterns.length; i++) {
+      PathPattern p = patterns[i];
+      int index = i;
+      queries.add(() -> queryFramework.patternQuery(p,
+              (docIds, length) -> docIdPairs.add(docIds, length, index)));
+    }
+    runAll(queries);
+    long[] pairs = docIdPairs.toSortedArray();
+
+    for (int[] range : DocIdPairs.split(pairs, DOCUMENTS_PER_TASK)) {
+      submit(new SentenceMajorInstanceExtractor(
+              queryFramework, patterns, pairs, range[0], range[1]));
+    }
+    logger.info("Matching " + patterns.length + " patterns in "
+            + pairs.length + " retrieved (sentence, pattern) pairs");
   }
 
   @Override
@@ -69,4 +201,87 @@ public final class InstanceExtractionStep
   public LinkedList<ExtractedInstance> getInstances() {
     return instances;
   }
+
+  /*
+    Returns null unless in concurrent-statistics or sharded mode.
+   */
+  public InstanceStatisticsTable getStatistics() {
+    return statistics;
+  }
+
+  /*
+    Writes the queried patterns with their ids, and the extracted instances
+    or their statistics, see Checkpoint.
+   */
+  public void writeCheckpoint(final DataOutput out) throws IOException {
+    out.writeInt(queriedPattern.size());
+    for (String pattern : queriedPattern) {
+      out.writeUTF(pattern);
+      out.writeInt(PathPattern.idOf(pattern));
+    }
+
+    writeInstances(out, instances);
+
+    out.writeBoolean(statistics != null);
+    if (statistics != null) {
+      statistics.writeCheckpoint(out);
+    }
+  }
+
+  /*
+    Writes extracted instances for a checkpoint.
+   */
+  static void writeInstances(final DataOutput out,
+                             final List<ExtractedInstance> extractedInstances)
+          throws IOException {
+    out.writeInt(extractedInstances.size());
+    for (ExtractedInstance i : extractedInstances) {
+      out.writeInt(i.getDocId());
+      out.writeUTF(i.getPattern().getPattern());
+      out.writeUTF(i.getCause());
+      out.writeUTF(i.getEffect());
+    }
+  }
+
+  /*
+    Reads extracted instances. Like the extractors, they share the path
+    patterns, which are looked up in and added to the given map.
+   */
+  static void readInstances(final DataInput in,
+                            final Map<String, PathPattern> patterns,
+                            final List<ExtractedInstance> extractedInstances)
+          throws IOException {
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      int docId = in.readInt();
+      PathPattern pattern =
+              patterns.computeIfAbsent(in.readUTF(), PathPattern::new);
+      ExtractedInstance extractedInstance =
+              new ExtractedInstance(docId, pattern);
+      String cause = in.readUTF();
+      extractedInstance.setCausality(cause, in.readUTF());
+      extractedInstances.add(extractedInstance);
+    }
+  }
+
+  public void readCheckpoint(final DataInput in) throws IOException {
+    queriedPattern.clear();
+    HashMap<Integer, Integer> patternIds = new HashMap<>();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      String pattern = in.readUTF();
+      queriedPattern.add(pattern);
+      patternIds.put(in.readInt(), PathPattern.idOf(pattern));
+    }
+
+    instances.clear();
+    readInstances(in, new HashMap<>(), instances);
+
+    if (in.readBoolean() != (statistics != null)) {
+      throw new IOException("Checkpoint of another statistics mode");
+    }
+    if (statistics != null) {
+      statistics.readCheckpoint(in, patternIds);
+    }
+  }
 }
@@ -31,30 +31,41 @@ public final class InstanceExtractor
         implements Callable<LinkedList<ExtractedInstance>> {
 
   private PathPattern pattern;
-  private LinkedList<PreprocessedSentence> sentences;
+  private LuceneQueryFramework queryFramework;
   private LinkedList<ExtractedInstance> foundSeeds;
 
   public InstanceExtractor(final PathPattern pattern,
-                           final LinkedList<PreprocessedSentence> sentences) {
+                           final LuceneQueryFramework queryFramework) {
     this.pattern = pattern;
-    this.sentences = sentences;
+    this.queryFramework = queryFramework;
   }
 
   @Override
   public LinkedList<ExtractedInstance> call() {
     foundSeeds = new LinkedList<>();
 
-    for (PreprocessedSentence sentence : sentences) {
-      extractFromSentencePath(sentence);
+    try (SentenceStream sentences =
+                 queryFramework.streamPatternQuery(pattern)) {
+      while (sentences.hasNext()) {
+        extractFromSentencePath(sentences.next());
+      }
     }
 
-    sentences.clear();
-
     return foundSeeds;
   }
 
   private void extractFromSentencePath(final PreprocessedSentence sentence) {
-    DiGraph g = new DiGraph(sentence.getDependencies());
+    addMatches(pattern, sentence, sentence.toGraph(), foundSeeds);
+  }
+
+  /*
+    Matches the pattern against the graph of the sentence and adds the
+    extracted instances.
+   */
+  static void addMatches(final PathPattern pattern,
+                         final PreprocessedSentence sentence,
+                         final DiGraph g,
+                         final LinkedList<ExtractedInstance> foundSeeds) {
     LinkedList<String[]> matches = pattern.match(g);
 
     for (String[] match : matches) {
@@ -62,9 +73,14 @@ public final class InstanceExtractor
         continue;
       }
       ExtractedInstance extractedInstance =
-              new ExtractedInstance(sentence.toString(), this.pattern);
+              new ExtractedInstance(sentence.getDocId(), pattern);
       extractedInstance.setCausality(match[0], match[1]);
       foundSeeds.add(extractedInstance);
     }
   }
+
+  @Override
+  public String toString() {
+    return "pattern " + pattern;
+  }
 }
@@ -24,7 +24,10 @@
  *
  */
 
-import java.util.HashMap;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Comparator;
 import java.util.LinkedList;
 
 import org.apache.logging.log4j.LogManager;
@@ -39,25 +42,49 @@ public final class InstanceSelector {
 
   private int selectedPreviousIteration = NUMBER_OF_INITIAL_SEEDS;
 
-  private HashMap<String, InstanceStatistic> causeEffectMatch;
+  private InstanceTable<InstanceStatistic> causeEffectMatch;
   private LinkedList<InstanceStatistic> statistics;
   private LinkedList<Instance> selected;
 
   public InstanceSelector() {
     statistics = new LinkedList<>();
     selected = new LinkedList<>();
-    causeEffectMatch = new HashMap<>();
+    causeEffectMatch = new InstanceTable<>();
   }
 
   public void select(final LinkedList<ExtractedInstance> instances) {
     clear();
     createStatistics(instances);
+    selectFromStatistics(InstanceSelector::compareSupportAndFrequency);
+  }
+
+  /*
+    Selects from statistics aggregated during the extraction, see
+    InstanceExtractionStep.setConcurrentStatistics.
+   */
+  public void select(final InstanceStatisticsTable table) {
+    clear();
+    statistics.addAll(table.getStatistics());
+    selectFromStatistics(InstanceStatistic::compareSupportAndInstance);
+  }
+
+  /*
+    Same order as sorting by frequency and then by support, with stable
+    sorts.
+   */
+  private static int compareSupportAndFrequency(final InstanceStatistic i1,
+                                                final InstanceStatistic i2) {
+    int cmp = InstanceStatistic.compareSupport(i1, i2);
+    return cmp != 0 ? cmp : InstanceStatistic.compareFrequency(i1, i2);
+  }
+
+  private void selectFromStatistics(
+          final Comparator<InstanceStatistic> order) {
     logger.info("Total instances found: " + statistics.size());
 
-    statistics.sort(InstanceStatistic::compareFrequency);
     statistics.removeIf(i -> i.getFrequency() < 2);
     statistics.removeIf(i -> i.getSupport() < 2);
-    statistics.sort(InstanceStatistic::compareSupport);
+    statistics.sort(order);
 
     for (InstanceStatistic s : statistics) {
       if (s.getCause().contains("/")
@@ -92,24 +119,30 @@ public final class InstanceSelector {
   }
 
   private void updateStatistics(final ExtractedInstance extractedInstance) {
-    String matcherCE = "[" + extractedInstance.getCause()
-            + "," + extractedInstance.getEffect() + "]";
-
-    if (causeEffectMatch.containsKey(matcherCE)) {
-      InstanceStatistic match = causeEffectMatch.get(matcherCE);
+    InstanceStatistic match =
+            causeEffectMatch.get(extractedInstance.getKey());
+    if (match != null) {
       match.update(extractedInstance);
       return;
     }
 
     InstanceStatistic s = new InstanceStatistic(extractedInstance);
     statistics.add(s);
-    causeEffectMatch.put(matcherCE, s);
+    causeEffectMatch.putIfAbsent(extractedInstance.getKey(), s);
   }
 
   public LinkedList<Instance> getSelectedInstances() {
     return selected;
   }
 
+  public void writeCheckpoint(final DataOutput out) throws IOException {
+    out.writeInt(selectedPreviousIteration);
+  }
+
+  public void readCheckpoint(final DataInput in) throws IOException {
+    selectedPreviousIteration = in.readInt();
+  }
+
   public void clear() {
     statistics.clear();
     selected.clear();
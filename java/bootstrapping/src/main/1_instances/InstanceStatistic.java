@@ -24,47 +24,192 @@
  *
  */
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
+/*
+  Statistics of a candidate instance: the number of extractions, the ids
+  of the distinct patterns that extracted it (its support), and a
+  reservoir sample of the supporting sentences, so that the memory per
+  instance stays small and bounded by the number of patterns.
+
+  A sentence of the sample is identified by its doc id and the index shard
+  it was retrieved from (see ShardCoordinator), packed like DocIdPairs.
+  Without shards, the shard is 0.
+ */
 public final class InstanceStatistic {
 
-  private HashMap<PathPattern, Integer> patternFrequency;
-  private HashMap<PathPattern, String> sampleSentences;
-  private LinkedList<String> sentences;
+  static final int EVIDENCE_SIZE = 4;
+
+  private static final int INITIAL_PATTERN_CAPACITY = 2;
 
   private String cause;
   private String effect;
 
   private int frequency = 0;
 
+  // sorted ids of the distinct patterns, see PathPattern.getId
+  private int[] patternIds = new int[INITIAL_PATTERN_CAPACITY];
+  private int support = 0;
+
+  private long[] evidence = new long[EVIDENCE_SIZE];
+
+  private InstanceStatistic(final String cause,
+                            final String effect) {
+    this.cause = cause;
+    this.effect = effect;
+  }
+
   public InstanceStatistic(final ExtractedInstance extractedInstance) {
     this.cause = extractedInstance.getCause();
     this.effect = extractedInstance.getEffect();
 
-    patternFrequency = new HashMap<>();
-    sentences = new LinkedList<>();
-
-    sampleSentences = new HashMap<>();
-
     update(extractedInstance);
   }
 
   public int getSupport() {
-    return patternFrequency.keySet().size();
+    return support;
+  }
+
+  public synchronized void update(final ExtractedInstance i) {
+    addPattern(i.getPattern().getId());
+    sample(DocIdPairs.pair(i.getDocId(), 0));
+    frequency++;
   }
 
-  public void update(final ExtractedInstance i) {
-    if (patternFrequency.containsKey(i.getPattern())) {
-      patternFrequency.put(i.getPattern(),
-              patternFrequency.get(i.getPattern()) + 1);
-    } else {
-      patternFrequency.put(i.getPattern(), 1);
-      sampleSentences.put(i.getPattern(), i.getSentence());
+  private void addPattern(final int patternId) {
+    int position = Arrays.binarySearch(patternIds, 0, support, patternId);
+    if (position >= 0) {
+      return;
     }
 
-    sentences.add(i.getSentence());
-    frequency++;
+    position = -position - 1;
+    if (support == patternIds.length) {
+      patternIds = Arrays.copyOf(patternIds, 2 * patternIds.length);
+    }
+    System.arraycopy(patternIds, position, patternIds, position + 1,
+            support - position);
+    patternIds[position] = patternId;
+    support++;
+  }
+
+  /*
+    Reservoir sampling (algorithm R) over the doc ids of the extractions,
+    called before frequency is incremented.
+   */
+  private void sample(final long sentence) {
+    if (frequency < EVIDENCE_SIZE) {
+      evidence[frequency] = sentence;
+      return;
+    }
+    int j = ThreadLocalRandom.current().nextInt(frequency + 1);
+    if (j < EVIDENCE_SIZE) {
+      evidence[j] = sentence;
+    }
+  }
+
+  /*
+    Assigns the sampled sentences to the shard they were retrieved from,
+    see ShardCoordinator.
+   */
+  public synchronized void setShard(final int shard) {
+    for (int i = 0; i < Math.min(frequency, EVIDENCE_SIZE); i++) {
+      evidence[i] = DocIdPairs.pair(DocIdPairs.docId(evidence[i]), shard);
+    }
+  }
+
+  /*
+    Adds the extractions of another statistic of the same instance, e.g.,
+    of another index shard.
+   */
+  public synchronized void merge(final InstanceStatistic other) {
+    for (int i = 0; i < other.support; i++) {
+      addPattern(other.patternIds[i]);
+    }
+    mergeEvidence(other);
+    frequency += other.frequency;
+  }
+
+  /*
+    Draws the merged sample from both samples in proportion to the
+    remaining extractions they represent, called before frequency is
+    incremented.
+   */
+  private void mergeEvidence(final InstanceStatistic other) {
+    long[] own = getEvidence();
+    long[] others = other.getEvidence();
+    int ownRemaining = frequency;
+    int othersRemaining = other.frequency;
+    int i = 0;
+    int j = 0;
+    int size = Math.min(frequency + other.frequency, EVIDENCE_SIZE);
+    for (int k = 0; k < size; k++) {
+      if (ThreadLocalRandom.current().nextInt(ownRemaining + othersRemaining)
+              < ownRemaining) {
+        evidence[k] = own[i++];
+        ownRemaining--;
+      } else {
+        evidence[k] = others[j++];
+        othersRemaining--;
+      }
+    }
+  }
+
+  /*
+    Returns a uniform sample of at most EVIDENCE_SIZE sentences the
+    instance was extracted from, see DocIdPairs.docId and DocIdPairs.index
+    for the doc id and the shard.
+   */
+  public long[] getEvidence() {
+    return Arrays.copyOf(evidence, Math.min(frequency, EVIDENCE_SIZE));
+  }
+
+  /*
+    Writes the statistic with the pattern ids of this run, see
+    InstanceExtractionStep.writeCheckpoint.
+   */
+  public synchronized void writeCheckpoint(final DataOutput out)
+          throws IOException {
+    out.writeUTF(cause);
+    out.writeUTF(effect);
+    out.writeInt(frequency);
+    out.writeInt(support);
+    for (int i = 0; i < support; i++) {
+      out.writeInt(patternIds[i]);
+    }
+    for (long sentence : getEvidence()) {
+      out.writeLong(sentence);
+    }
+  }
+
+  /*
+    Reads a statistic and maps the pattern ids of the run that wrote it to
+    the pattern ids of this run.
+   */
+  public static InstanceStatistic readCheckpoint(
+          final DataInput in,
+          final Map<Integer, Integer> patternIds) throws IOException {
+    String cause = in.readUTF();
+    InstanceStatistic s = new InstanceStatistic(cause, in.readUTF());
+    s.frequency = in.readInt();
+    s.support = in.readInt();
+    s.patternIds = new int[Math.max(s.support, INITIAL_PATTERN_CAPACITY)];
+    for (int i = 0; i < s.support; i++) {
+      Integer id = patternIds.get(in.readInt());
+      if (id == null) {
+        throw new IOException("Unknown pattern id in checkpoint");
+      }
+      s.patternIds[i] = id;
+    }
+    Arrays.sort(s.patternIds, 0, s.support);
+    for (int i = 0; i < Math.min(s.frequency, EVIDENCE_SIZE); i++) {
+      s.evidence[i] = in.readLong();
+    }
+    return s;
   }
 
   public static int compareFrequency(final InstanceStatistic i1,
@@ -84,6 +229,26 @@ public final class InstanceStatistic {
     return effect;
   }
 
+  /*
+    Orders by support, frequency, cause and effect, independent of the
+    order in which the instances were extracted.
+   */
+  public static int compareSupportAndInstance(
+          final InstanceStatistic i1,
+          final InstanceStatistic i2) {
+    int cmp = compareSupport(i1, i2);
+    if (cmp == 0) {
+      cmp = compareFrequency(i1, i2);
+    }
+    if (cmp == 0) {
+      cmp = i1.cause.compareTo(i2.cause);
+    }
+    if (cmp == 0) {
+      cmp = i1.effect.compareTo(i2.effect);
+    }
+    return cmp;
+  }
+
   public static int compareSupport(
           final InstanceStatistic instanceStatistic,
           final InstanceStatistic instanceStatistic1) {
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+  Statistics of all extracted instances, updated concurrently by the
+  extraction tasks as they finish, instead of being aggregated from the
+  joined results by the InstanceSelector.
+ */
+public final class InstanceStatisticsTable {
+
+  private ConcurrentHashMap<Long, InstanceStatistic> statistics =
+          new ConcurrentHashMap<>();
+
+  public void record(final ExtractedInstance extractedInstance) {
+    InstanceStatistic statistic = statistics.get(extractedInstance.getKey());
+    if (statistic == null) {
+      InstanceStatistic created = new InstanceStatistic(extractedInstance);
+      statistic = statistics.putIfAbsent(extractedInstance.getKey(), created);
+      if (statistic == null) {
+        return;
+      }
+    }
+    statistic.update(extractedInstance);
+  }
+
+  /*
+    Adds the statistic to the one of the same instance, if any.
+   */
+  public void merge(final InstanceStatistic statistic) {
+    InstanceStatistic existing = statistics.putIfAbsent(
+            Instance.key(statistic.getCause(), statistic.getEffect()),
+            statistic);
+    if (existing != null) {
+      existing.merge(statistic);
+    }
+  }
+
+  public Collection<InstanceStatistic> getStatistics() {
+    return statistics.values();
+  }
+
+  /*
+    Writes the statistics together with the ids of the given patterns, so
+    that another run can merge them (see ShardWorker).
+   */
+  public void write(final DataOutput out,
+                    final List<PathPattern> patterns) throws IOException {
+    out.writeInt(patterns.size());
+    for (PathPattern pattern : patterns) {
+      out.writeUTF(pattern.getPattern());
+      out.writeInt(pattern.getId());
+    }
+    writeCheckpoint(out);
+  }
+
+  /*
+    Merges statistics written by write for the given index shard, mapping
+    the pattern ids of the writing run to the ones of this run. Can be
+    called concurrently.
+   */
+  public void merge(final DataInput in, final int shard) throws IOException {
+    HashMap<Integer, Integer> patternIds = new HashMap<>();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      String pattern = in.readUTF();
+      patternIds.put(in.readInt(), PathPattern.idOf(pattern));
+    }
+
+    size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      InstanceStatistic statistic =
+              InstanceStatistic.readCheckpoint(in, patternIds);
+      statistic.setShard(shard);
+      merge(statistic);
+    }
+  }
+
+  public void writeCheckpoint(final DataOutput out) throws IOException {
+    out.writeInt(statistics.size());
+    for (InstanceStatistic statistic : statistics.values()) {
+      statistic.writeCheckpoint(out);
+    }
+  }
+
+  /*
+    See InstanceStatistic.readCheckpoint.
+   */
+  public void readCheckpoint(final DataInput in,
+                             final Map<Integer, Integer> patternIds)
+          throws IOException {
+    statistics.clear();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      InstanceStatistic statistic =
+              InstanceStatistic.readCheckpoint(in, patternIds);
+      statistics.put(Instance.key(statistic.getCause(),
+              statistic.getEffect()), statistic);
+    }
+  }
+}
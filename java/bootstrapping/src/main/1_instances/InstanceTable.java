@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.util.Arrays;
+
+/*
+  Open-addressing hash map from instance keys (see Instance.key) to
+  non-null values, with linear probing and without boxing the keys.
+  Not thread-safe.
+ */
+public final class InstanceTable<V> {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private long[] keys = new long[INITIAL_CAPACITY];
+  private Object[] values = new Object[INITIAL_CAPACITY];
+  private int size = 0;
+
+  @SuppressWarnings("unchecked")
+  public V get(final long key) {
+    int mask = keys.length - 1;
+    for (int slot = slot(key, mask); values[slot] != null;
+         slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return (V) values[slot];
+      }
+    }
+    return null;
+  }
+
+  /*
+    Returns the value of the key or, if there is none, adds the given value
+    and returns null.
+   */
+  @SuppressWarnings("unchecked")
+  public V putIfAbsent(final long key, final V value) {
+    int mask = keys.length - 1;
+    int slot = slot(key, mask);
+    for (; values[slot] != null; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return (V) values[slot];
+      }
+    }
+
+    keys[slot] = key;
+    values[slot] = value;
+    // keep the load factor at most 1/2
+    if (++size > keys.length / 2) {
+      resize();
+    }
+    return null;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  private void resize() {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[2 * oldKeys.length];
+    values = new Object[2 * oldValues.length];
+
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        int slot = slot(oldKeys[i], mask);
+        while (values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private static int slot(final long key, final int mask) {
+    return Instance.hash(key) & mask;
+  }
+}
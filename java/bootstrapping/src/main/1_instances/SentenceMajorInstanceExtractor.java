@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+
+/*
+  Extracts instances from a range of sorted (document, pattern) pairs, see
+  InstanceExtractionStep and DocIdPairs. The graph of each document is
+  loaded and parsed once and matched against all patterns that retrieved
+  it.
+ */
+public final class SentenceMajorInstanceExtractor
+        implements Callable<LinkedList<ExtractedInstance>> {
+
+  private LuceneQueryFramework queryFramework;
+  private PathPattern[] patterns;
+  private long[] pairs;
+  private int from;
+  private int to;
+
+  public SentenceMajorInstanceExtractor(
+          final LuceneQueryFramework queryFramework,
+          final PathPattern[] patterns,
+          final long[] pairs,
+          final int from,
+          final int to) {
+    this.queryFramework = queryFramework;
+    this.patterns = patterns;
+    this.pairs = pairs;
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  public LinkedList<ExtractedInstance> call() {
+    LinkedList<ExtractedInstance> foundSeeds = new LinkedList<>();
+
+    int i = from;
+    while (i < to) {
+      int end = DocIdPairs.documentEnd(pairs, i, to);
+      try {
+        PreprocessedSentence sentence =
+                queryFramework.loadSentence(DocIdPairs.docId(pairs[i]));
+        DiGraph g = sentence.toGraph();
+        for (int j = i; j < end; j++) {
+          InstanceExtractor.addMatches(patterns[DocIdPairs.index(pairs[j])],
+                  sentence, g, foundSeeds);
+        }
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      i = end;
+    }
+
+    return foundSeeds;
+  }
+
+  @Override
+  public String toString() {
+    return "pairs " + from + " to " + to;
+  }
+}
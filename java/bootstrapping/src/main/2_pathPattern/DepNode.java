@@ -37,17 +37,31 @@ public final class DepNode {
 
   private HashMap<String, String> edges;
 
-  private DepNode predecessor = null;
-
   public DepNode(final String nodeId,
                  final String label) {
+    this(nodeId, nameOf(label), posOf(label));
+  }
+
+  public DepNode(final String nodeId,
+                 final String name,
+                 final String POS) {
     this.nodeId = nodeId;
-    String[] x = label.split("/");
-    name = StringUtils.lowerCase(x[0]);
-    POS = x[1].split("-")[0];
+    this.name = name;
+    this.POS = POS;
     edges = new HashMap<>();
   }
 
+  /*
+    Label example: "earthquake/NN-2"
+   */
+  static String nameOf(final String label) {
+    return StringUtils.lowerCase(label.split("/")[0]);
+  }
+
+  static String posOf(final String label) {
+    return label.split("/")[1].split("-")[0];
+  }
+
   public void addOutgoingEdge(final String to,
                               final String label) {
     edges.put(to, "+" + label);
@@ -67,18 +81,6 @@ public final class DepNode {
     return name + "/" + POS;
   }
 
-  public void setPredecessor(final DepNode node) {
-    this.predecessor = node;
-  }
-
-  public boolean visited() {
-    return predecessor != null;
-  }
-
-  public DepNode getPredecessor() {
-    return predecessor;
-  }
-
   public String getNodeId() {
     return nodeId;
   }
@@ -98,8 +100,4 @@ public final class DepNode {
   public Set<String> getAdjacency() {
     return edges.keySet();
   }
-
-  public void reset() {
-    predecessor = null;
-  }
 }
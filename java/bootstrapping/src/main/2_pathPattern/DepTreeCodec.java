@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.GrowableByteArrayDataOutput;
+
+/*
+  Compact binary encoding of the digraph representation of dependency
+  trees (see DiGraph), so that the graph can be created without parsing
+  the DOT text:
+
+    version (byte)
+    number of nodes (vint)
+      per node: node id, name, POS (strings)
+    number of edges (vint)
+      per edge: index of source node (vint),
+                index of target node + 1 (vint, 0 if unknown),
+                target node id (string, only if unknown),
+                label (string)
+
+  Nodes and edges keep the order of the digraph representation, and edges
+  that the DiGraph parser would ignore are dropped, so the decoded graph
+  equals the graph parsed from the DOT text.
+ */
+public final class DepTreeCodec {
+
+  private static final byte VERSION = 1;
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+
+  private DepTreeCodec() {
+  }
+
+  public static byte[] encode(final String diGraphString) throws IOException {
+    String[] graph = diGraphString.split("\\n");
+
+    HashMap<String, Integer> nodeIndices = new HashMap<>();
+    GrowableByteArrayDataOutput nodes =
+            new GrowableByteArrayDataOutput(INITIAL_BUFFER_SIZE);
+    GrowableByteArrayDataOutput edges =
+            new GrowableByteArrayDataOutput(INITIAL_BUFFER_SIZE);
+    int nEdges = 0;
+
+    for (int i = 1; i < graph.length - 1; i++) {
+      if (!graph[i].contains("->")) {
+        String[] node = DiGraph.parseNode(graph[i]);
+        nodes.writeString(node[0]);
+        nodes.writeString(DepNode.nameOf(node[1]));
+        nodes.writeString(DepNode.posOf(node[1]));
+        nodeIndices.put(node[0], nodeIndices.size());
+        continue;
+      }
+
+      String[] edge;
+      try {
+        edge = DiGraph.parseEdge(graph[i]);
+      } catch (Exception ignored) {
+        // ignore edge
+        continue;
+      }
+      Integer from = nodeIndices.get(edge[0]);
+      if (from == null) {
+        // ignore edge
+        continue;
+      }
+      Integer to = nodeIndices.get(edge[1]);
+      edges.writeVInt(from);
+      if (to == null) {
+        // DiGraph only adds the outgoing edge
+        edges.writeVInt(0);
+        edges.writeString(edge[1]);
+      } else {
+        edges.writeVInt(to + 1);
+      }
+      edges.writeString(edge[2]);
+      nEdges++;
+    }
+
+    GrowableByteArrayDataOutput out = new GrowableByteArrayDataOutput(
+            nodes.getPosition() + edges.getPosition() + 2 * Integer.BYTES);
+    out.writeByte(VERSION);
+    out.writeVInt(nodeIndices.size());
+    out.writeBytes(nodes.getBytes(), 0, nodes.getPosition());
+    out.writeVInt(nEdges);
+    out.writeBytes(edges.getBytes(), 0, edges.getPosition());
+
+    byte[] bytes = new byte[out.getPosition()];
+    System.arraycopy(out.getBytes(), 0, bytes, 0, bytes.length);
+    return bytes;
+  }
+
+  public static DiGraph decode(final byte[] bytes) {
+    ByteArrayDataInput in = new ByteArrayDataInput(bytes);
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IllegalArgumentException(
+              "Unsupported dependency tree version " + version);
+    }
+
+    try {
+      DepNode[] nodes = new DepNode[in.readVInt()];
+      for (int i = 0; i < nodes.length; i++) {
+        nodes[i] = new DepNode(in.readString(), in.readString(),
+                in.readString());
+      }
+
+      int nEdges = in.readVInt();
+      for (int i = 0; i < nEdges; i++) {
+        DepNode from = nodes[in.readVInt()];
+        int to = in.readVInt();
+        if (to == 0) {
+          String toId = in.readString();
+          from.addOutgoingEdge(toId, in.readString());
+        } else {
+          String label = in.readString();
+          from.addOutgoingEdge(nodes[to - 1].getNodeId(), label);
+          nodes[to - 1].addIncomingEdge(from.getNodeId(), label);
+        }
+      }
+      return new DiGraph(nodes);
+    } catch (IOException e) {
+      // cannot happen when reading from a byte array
+      throw new IllegalArgumentException(e);
+    }
+  }
+}
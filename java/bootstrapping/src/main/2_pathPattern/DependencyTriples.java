@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+  Dependency triples "head/POS <tab> label <tab> dependent/POS" of a graph
+  and of a path pattern, indexed as exact terms (see LuceneIndexer), so
+  that a pattern retrieves only sentences with all of its edges.
+
+  Cause and effect nodes of patterns match any noun (see PathPattern), so
+  for nouns the triples are also indexed with the node replaced by
+  [[]]/N. A sentence matching a pattern contains all triples of the
+  pattern.
+ */
+public final class DependencyTriples {
+
+  private static final String ENDPOINT = "[[]]/N";
+  private static final String SEPARATOR = "\t";
+
+  private DependencyTriples() {
+  }
+
+  /*
+    Returns the triples of all edges of the graph. Edges to nodes missing in
+    the graph are ignored.
+   */
+  public static Set<String> of(final DiGraph graph) {
+    Set<String> triples = new LinkedHashSet<>();
+    for (DepNode node : graph.nodes()) {
+      for (String adjacentId : node.getAdjacency()) {
+        DepNode adjacent = graph.getNode(adjacentId);
+        if (adjacent == null) {
+          continue;
+        }
+        String incident = node.getIncident(adjacentId);
+        if (incident.startsWith("+")) {
+          addTriples(triples, node, incident.substring(1), adjacent);
+        } else {
+          addTriples(triples, adjacent, incident.substring(1), node);
+        }
+      }
+    }
+    return triples;
+  }
+
+  private static void addTriples(final Set<String> triples,
+                                 final DepNode head,
+                                 final String label,
+                                 final DepNode dependent) {
+    String h = head.getName() + "/" + head.getPOS();
+    String d = dependent.getName() + "/" + dependent.getPOS();
+    boolean headIsNoun = PathPattern.isNoun(head.getPOS());
+    boolean dependentIsNoun = PathPattern.isNoun(dependent.getPOS());
+
+    triples.add(triple(h, label, d));
+    if (headIsNoun) {
+      triples.add(triple(ENDPOINT, label, d));
+    }
+    if (dependentIsNoun) {
+      triples.add(triple(h, label, ENDPOINT));
+    }
+    if (headIsNoun && dependentIsNoun) {
+      triples.add(triple(ENDPOINT, label, ENDPOINT));
+    }
+  }
+
+  /*
+    Returns the triples of the edges of the pattern, oriented from head to
+    dependent.
+   */
+  public static List<String> of(final PathPattern pattern) {
+    String[] parts = pattern.getParts();
+    List<String> triples = new ArrayList<>();
+    for (int i = 1; i < parts.length - 1; i += 2) {
+      String from = node(parts[i - 1]);
+      String to = node(parts[i + 1]);
+      String label = parts[i].substring(1);
+      String triple = parts[i].startsWith("+")
+              ? triple(from, label, to)
+              : triple(to, label, from);
+      if (!triples.contains(triple)) {
+        triples.add(triple);
+      }
+    }
+    return triples;
+  }
+
+  /*
+    Node of a pattern as compared by PathPattern.match.
+   */
+  private static String node(final String part) {
+    String[] nodeParts = part.split("/");
+    if (nodeParts[0].contains("[[cause]]")
+            || nodeParts[0].contains("[[effect]]")) {
+      return ENDPOINT;
+    }
+    return nodeParts[0] + "/" + nodeParts[1];
+  }
+
+  private static String triple(final String head,
+                               final String label,
+                               final String dependent) {
+    return head + SEPARATOR + label + SEPARATOR + dependent;
+  }
+}
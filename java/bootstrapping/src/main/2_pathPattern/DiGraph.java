@@ -35,6 +35,7 @@ public final class DiGraph {
   private static final int LABEL_END = 3;
 
   private HashMap<String, DepNode> nodesById;
+  private HashMap<String, DepNode> nodesByName;
 
   /*
     Class for representing dependency graphs based on a digraph representation.
@@ -60,10 +61,37 @@ public final class DiGraph {
         N_8 -> N_6 [label="det"];
         N_8 -> N_7 [label="amod"];
       }
+
+    Graphs are not modified after their creation and can be shared by
+    threads (see GraphCache).
    */
   public DiGraph(final String diGraphString) {
     nodesById = new HashMap<>();
     createGraph(diGraphString);
+    indexNames();
+  }
+
+  /*
+    Creates the graph from nodes whose edges are already added, in the
+    order of the digraph representation (see DepTreeCodec).
+   */
+  public DiGraph(final DepNode[] nodes) {
+    nodesById = new HashMap<>();
+    for (DepNode node : nodes) {
+      nodesById.put(node.getNodeId(), node);
+    }
+    indexNames();
+  }
+
+  /*
+    Indexes the nodes by their lowercase name. For names of several nodes,
+    the first node in the order of nodes() is indexed.
+   */
+  private void indexNames() {
+    nodesByName = new HashMap<>();
+    for (DepNode node : nodesById.values()) {
+      nodesByName.putIfAbsent(node.getName(), node);
+    }
   }
 
   private void createGraph(final String diGraphString) {
@@ -87,10 +115,18 @@ public final class DiGraph {
         N_2 [label="earthquake/NN-2"];
    */
   private void createNode(final String node) {
+    String[] x = parseNode(node);
+    DepNode depNode = new DepNode(x[0], x[1]);
+    nodesById.put(x[0], depNode);
+  }
+
+  /*
+    Returns the node id and the label of a node line.
+   */
+  static String[] parseNode(final String node) {
     String[] x = node.split("\\[", 2);
     String label = x[1].substring(LABEL_START, x[1].length() - LABEL_END);
-    DepNode depNode = new DepNode(x[0].trim(), label);
-    nodesById.put(x[0].trim(), depNode);
+    return new String[] {x[0].trim(), label};
   }
 
   /*
@@ -98,22 +134,25 @@ public final class DiGraph {
         N_2 -> N_4 [label="nmod:in"];
    */
   private void createEdge(final String edge) {
+    String[] x = parseEdge(edge);
+    nodesById.get(x[0]).addOutgoingEdge(x[1], x[2]);
+    nodesById.get(x[1]).addIncomingEdge(x[0], x[2]);
+  }
+
+  /*
+    Returns the ids of the source and target node and the label of an
+    edge line.
+   */
+  static String[] parseEdge(final String edge) {
     String[] x = edge.split("\\[", 2);
     String[] edgePointer = x[0].split(" -> ");
     String label = x[1].substring(LABEL_START, x[1].length() - LABEL_END);
-    nodesById.get(edgePointer[0].trim())
-            .addOutgoingEdge(edgePointer[1].trim(), label);
-    nodesById.get(edgePointer[1].trim())
-            .addIncomingEdge(edgePointer[0].trim(), label);
+    return new String[] {
+            edgePointer[0].trim(), edgePointer[1].trim(), label};
   }
 
   public DepNode getNodeMatching(final String string) {
-    for (DepNode node : nodesById.values()) {
-      if (node.getName().equals(StringUtils.lowerCase(string))) {
-        return node;
-      }
-    }
-    return null;
+    return nodesByName.get(StringUtils.lowerCase(string));
   }
 
   public int size() {
@@ -127,10 +166,4 @@ public final class DiGraph {
   public DepNode getNode(final String nodeId) {
     return nodesById.get(nodeId);
   }
-
-  public void reset() {
-    for (DepNode d : nodesById.values()) {
-      d.reset();
-    }
-  }
 }
@@ -24,7 +24,11 @@
  *
  */
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
 public final class PathExtractor {
@@ -35,71 +39,108 @@ public final class PathExtractor {
 
   public static String extract(final DiGraph diGraph,
                                final Instance instance) {
-    DepNode causeNode = diGraph.getNodeMatching(instance.getCause());
-    DepNode effectNode = diGraph.getNodeMatching(instance.getEffect());
+    return extract(diGraph, Collections.singletonList(instance))[0];
+  }
 
-    if (causeNode == null || effectNode == null) {
-      return null;
+  /*
+    Extracts the paths of all instances with the same cause with one
+    breadth-first search from the cause node. Returns null for instances
+    without path.
+   */
+  public static String[] extract(final DiGraph diGraph,
+                                 final List<Instance> instances) {
+    String[] paths = new String[instances.size()];
+    DepNode causeNode = diGraph.getNodeMatching(instances.get(0).getCause());
+
+    if (causeNode == null) {
+      return paths;
     }
 
-    PathPatternGeneralizer result =
-            shortestPath(diGraph, causeNode, effectNode);
+    HashSet<DepNode> effectNodes = new HashSet<>();
+    for (Instance instance : instances) {
+      DepNode effectNode = diGraph.getNodeMatching(instance.getEffect());
+      if (effectNode != null) {
+        effectNodes.add(effectNode);
+      }
+    }
 
-    if (result == null) {
-      return null;
+    if (effectNodes.isEmpty()) {
+      return paths;
     }
 
-    result.generalize(instance);
+    HashMap<DepNode, DepNode> predecessors =
+            shortestPaths(diGraph, causeNode, effectNodes);
+
+    for (int i = 0; i < paths.length; i++) {
+      DepNode effectNode =
+              diGraph.getNodeMatching(instances.get(i).getEffect());
+      if (effectNode == null
+              || (effectNode != causeNode
+              && !predecessors.containsKey(effectNode))) {
+        continue;
+      }
+
+      PathPatternGeneralizer result =
+              constructPath(predecessors, causeNode, effectNode);
+      result.generalize(instances.get(i));
+      paths[i] = result.toString();
+    }
 
-    return result.toString();
+    return paths;
   }
 
-  private static PathPatternGeneralizer shortestPath(
+  /*
+    Breadth-first search from start until all ends are reached. Returns the
+    predecessor of each visited node on its shortest path from start.
+   */
+  private static HashMap<DepNode, DepNode> shortestPaths(
           final DiGraph diGraph,
           final DepNode start,
-          final DepNode end) {
+          final Set<DepNode> ends) {
 
+    // the search state is kept outside of the graph, which can be shared
+    // by several threads
+    HashMap<DepNode, DepNode> predecessors = new HashMap<>();
     LinkedList<DepNode> queue = new LinkedList<>();
+    HashSet<DepNode> remainingEnds = new HashSet<>(ends);
 
     queue.addLast(start);
 
     DepNode node;
     while ((node = queue.removeFirst()) != null) {
-      visit(diGraph, queue, node.getAdjacency(), node);
+      visit(diGraph, queue, predecessors, node.getAdjacency(), node);
 
-      if (node == end) {
+      if (remainingEnds.remove(node) && remainingEnds.isEmpty()) {
         break;
       }
 
       if (queue.isEmpty()) {
-        return null;
+        break;
       }
     }
 
-    if (node != end) {
-      return null;
-    }
-
-    return constructPath(start, end);
+    return predecessors;
   }
 
   private static void visit(final DiGraph diGraph,
                             final LinkedList<DepNode> queue,
+                            final HashMap<DepNode, DepNode> predecessors,
                             final Set<String> adjacentNodes,
                             final DepNode node) {
     for (String adjId : adjacentNodes) {
       DepNode adjNode = diGraph.getNode(adjId);
 
-      if (adjNode == null || adjNode.visited()) {
+      if (adjNode == null || predecessors.containsKey(adjNode)) {
         continue;
       }
 
-      adjNode.setPredecessor(node);
+      predecessors.put(adjNode, node);
       queue.addLast(adjNode);
     }
   }
 
   private static PathPatternGeneralizer constructPath(
+          final HashMap<DepNode, DepNode> predecessors,
           final DepNode start,
           final DepNode end) {
     PathPatternGeneralizer p = new PathPatternGeneralizer();
@@ -107,7 +148,7 @@ public final class PathExtractor {
     DepNode pred = end;
     while (pred != null && pred != start) {
       p.add(pred);
-      pred = pred.getPredecessor();
+      pred = predecessors.get(pred);
     }
 
     if (pred == start) {
@@ -24,16 +24,52 @@
  *
  */
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 
 public final class PathPattern {
 
+  private static final String ENDPOINT = "[[]]";
+
+  private static final StringDictionary PATTERN_IDS = new StringDictionary();
+
   private String pathString;
   private String[] parts;
 
+  private String signature;
+  private String reversedSignature;
+  private String canonicalKey;
+  private int id = -1;
+
   public PathPattern(final String path) {
     pathString = path;
     parts = path.split("\t");
+
+    String[] normalized = new String[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      normalized[i] = normalize(parts[i]);
+    }
+    signature = String.join("\t", normalized);
+    Collections.reverse(Arrays.asList(normalized));
+    reversedSignature = String.join("\t", normalized);
+    canonicalKey = signature.compareTo(reversedSignature) <= 0
+            ? signature
+            : reversedSignature;
+  }
+
+  /*
+    Normalizes a part as compared by isReverseOf: cause and effect nodes
+    are not distinguished, and edges lose their direction.
+   */
+  private static String normalize(final String part) {
+    if (part.contains("[[")) {
+      return ENDPOINT;
+    }
+    if (part.contains("/") || part.isEmpty()) {
+      return part;
+    }
+    return part.substring(1);
   }
 
   /*
@@ -127,7 +163,7 @@ public final class PathPattern {
     return pathNodePOS.equals(nodePOS) && pathNodeName.equals(nodeName);
   }
 
-  private boolean isNoun(final String string) {
+  static boolean isNoun(final String string) {
     return string.equals("NNS")
             || string.equals("NNP")
             || string.equals("NN")
@@ -147,30 +183,29 @@ public final class PathPattern {
     return pathString;
   }
 
-  public boolean isReverseOf(final PathPattern pathPattern) {
-    if (parts.length != pathPattern.parts.length) {
-      return false;
+  /*
+    Returns a small int that identifies the pattern string, assigned on
+    first use.
+   */
+  public int getId() {
+    if (id < 0) {
+      id = idOf(pathString);
     }
+    return id;
+  }
 
-    int i = pathPattern.parts.length - 1;
-    for (String part : parts) {
-      String compareTo = pathPattern.parts[i];
-
-      if (part.contains("[[") && compareTo.contains("[[")) {
-        i--;
-        continue;
-      }
+  public static int idOf(final String pattern) {
+    return PATTERN_IDS.idOf(pattern);
+  }
 
-      if (part.contains("/")) {
-        if (!part.equals(compareTo)) {
-          return false;
-        }
-      } else if (!part.substring(1).equals(compareTo.substring(1))) {
-        return false;
-      }
+  /*
+    Identical for a pattern and its reverse, see isReverseOf.
+   */
+  public String getCanonicalKey() {
+    return canonicalKey;
+  }
 
-      i--;
-    }
-    return true;
+  public boolean isReverseOf(final PathPattern pathPattern) {
+    return reversedSignature.equals(pathPattern.signature);
   }
 }
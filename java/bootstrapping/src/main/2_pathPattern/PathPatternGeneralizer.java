@@ -28,6 +28,9 @@ import java.util.LinkedList;
 
 public final class PathPatternGeneralizer {
 
+  private static final String CAUSE = "[[cause]]/N";
+  private static final String EFFECT = "[[effect]]/N";
+
   private LinkedList<DepNode> path;
   private String generalizedPath;
 
@@ -46,19 +49,43 @@ public final class PathPatternGeneralizer {
       DepNode curr = path.get(i);
       DepNode next = path.get(i + 1);
 
-      result.append(curr.toString()).append("\t");
+      appendNode(result, curr, instance);
+      result.append("\t");
       result.append(curr.getLabel(next)).append("\t");
     }
 
-    result.append(path.get(path.size() - 1).toString());
-    generalizedPath = generalize(result.toString(), instance);
+    appendNode(result, path.get(path.size() - 1), instance);
+    generalizedPath = result.toString();
+  }
+
+  /*
+    Appends the node, replacing a seed at the end of the name of a noun by
+    [[cause]]/N or [[effect]]/N (ignoring case).
+   */
+  private static void appendNode(final StringBuilder result,
+                                 final DepNode node,
+                                 final Instance instance) {
+    String name = node.getName();
+    if (PathPattern.isNoun(node.getPOS())) {
+      if (endsWithIgnoreCase(name, instance.getCause())) {
+        result.append(name, 0, name.length() - instance.getCause().length())
+                .append(CAUSE);
+        return;
+      }
+      if (endsWithIgnoreCase(name, instance.getEffect())) {
+        result.append(name, 0, name.length() - instance.getEffect().length())
+                .append(EFFECT);
+        return;
+      }
+    }
+    result.append(name).append("/").append(node.getPOS());
   }
 
-  private String generalize(String path, final Instance instance) {
-    path = path.replaceAll("(?i)" + instance.getCause() + "/(NNS|NNP|NN|NNPS)",
-            "[[cause]]/N");
-    return path.replaceAll("(?i)" + instance.getEffect() + "/(NNS|NNP|NN|NNPS)",
-            "[[effect]]/N");
+  private static boolean endsWithIgnoreCase(final String name,
+                                            final String seed) {
+    int start = name.length() - seed.length();
+    return start >= 0
+            && name.regionMatches(true, start, seed, 0, seed.length());
   }
 
   @Override
@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+
+/*
+  Machine-readable checkpoint of the bootstrapping state after a phase:
+
+    magic, version (ints)
+    iteration, phase (ints)
+    state of WikipediaExtractor, the extraction steps and the selectors
+    (see their writeCheckpoint methods)
+
+  The checkpoint is written to a temporary file that then replaces the
+  previous checkpoint, so that a crash while writing keeps the last
+  complete one.
+ */
+public final class Checkpoint {
+
+  public static final int PATTERN_PHASE = 0;
+  public static final int INSTANCE_PHASE = 1;
+
+  private static final int MAGIC = 0x43484b50;
+  private static final int VERSION = 2;
+
+  private static final String FILENAME = "checkpoint";
+
+  /*
+    Writes the state of a phase, see Checkpoint.
+   */
+  public interface Writer {
+    void write(DataOutput out) throws IOException;
+  }
+
+  /*
+    Reads the state of a phase, see Checkpoint.
+   */
+  public interface Reader {
+    void read(DataInput in) throws IOException;
+  }
+
+  private Checkpoint() {
+  }
+
+  public static Path path(final String pathOutput) {
+    return Paths.get(pathOutput + FILENAME);
+  }
+
+  public static void write(final Path path,
+                           final int iteration,
+                           final int phase,
+                           final Writer writer) throws IOException {
+    Path temporary = Paths.get(path + ".tmp");
+    try (OutputStream os = Files.newOutputStream(temporary);
+         DataOutputStream out =
+                 new DataOutputStream(new BufferedOutputStream(os))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(iteration);
+      out.writeInt(phase);
+      writer.write(out);
+    }
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /*
+    Reads the checkpoint and returns its iteration and phase.
+   */
+  public static int[] read(final Path path,
+                           final Reader reader) throws IOException {
+    try (InputStream is = Files.newInputStream(path);
+         DataInputStream in =
+                 new DataInputStream(new BufferedInputStream(is))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Unsupported checkpoint " + path);
+      }
+      int iteration = in.readInt();
+      int phase = in.readInt();
+      reader.read(in);
+      return new int[] {iteration, phase};
+    }
+  }
+
+  public static void writeStrings(final DataOutput out,
+                                  final Collection<String> strings)
+          throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      out.writeUTF(string);
+    }
+  }
+
+  public static void readStrings(final DataInput in,
+                                 final Collection<String> strings)
+          throws IOException {
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      strings.add(in.readUTF());
+    }
+  }
+
+  public static void writeInstance(final DataOutput out,
+                                   final Instance instance)
+          throws IOException {
+    out.writeUTF(instance.getCause());
+    out.writeUTF(instance.getEffect());
+  }
+
+  public static Instance readInstance(final DataInput in) throws IOException {
+    String cause = in.readUTF();
+    return new Instance(cause, in.readUTF());
+  }
+
+  public static void writeInstances(final DataOutput out,
+                                    final List<Instance> instances)
+          throws IOException {
+    out.writeInt(instances.size());
+    for (Instance instance : instances) {
+      writeInstance(out, instance);
+    }
+  }
+
+  public static void readInstances(final DataInput in,
+                                   final List<Instance> instances)
+          throws IOException {
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      instances.add(readInstance(in));
+    }
+  }
+}
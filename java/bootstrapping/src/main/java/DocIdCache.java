@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+  Memory-bounded LRU cache of the sorted ids of the documents matching a
+  query clause or a conjunction of clauses. The index does not change
+  during bootstrapping, so the entries stay valid across iterations.
+
+  Clauses matching more than maxEntryIds documents are not cached but
+  remembered, so that they are not counted again.
+ */
+public final class DocIdCache {
+
+  // estimated memory of an entry besides the ids
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+  private final long maxBytes;
+  private final int maxEntryIds;
+  private final LinkedHashMap<String, int[]> entries =
+          new LinkedHashMap<>(16, 0.75f, true);
+  private final HashSet<String> tooLarge = new HashSet<>();
+  private long bytes = 0;
+
+  private long hits = 0;
+  private long misses = 0;
+
+  public DocIdCache(final long maxBytes, final int maxEntryIds) {
+    this.maxBytes = maxBytes;
+    this.maxEntryIds = maxEntryIds;
+  }
+
+  public int getMaxEntryIds() {
+    return maxEntryIds;
+  }
+
+  public synchronized int[] get(final String key) {
+    int[] docIds = entries.get(key);
+    if (docIds == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return docIds;
+  }
+
+  /*
+    Expects the ids to be sorted.
+   */
+  public synchronized void put(final String key, final int[] docIds) {
+    if (docIds.length > maxEntryIds) {
+      tooLarge.add(key);
+      return;
+    }
+    int[] previous = entries.put(key, docIds);
+    if (previous != null) {
+      bytes -= size(previous);
+    }
+    bytes += size(docIds);
+
+    Iterator<Map.Entry<String, int[]>> eldest =
+            entries.entrySet().iterator();
+    while (bytes > maxBytes && eldest.hasNext()) {
+      bytes -= size(eldest.next().getValue());
+      eldest.remove();
+    }
+  }
+
+  public synchronized void markTooLarge(final String key) {
+    tooLarge.add(key);
+  }
+
+  public synchronized boolean isTooLarge(final String key) {
+    return tooLarge.contains(key);
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  private static long size(final int[] docIds) {
+    return ENTRY_OVERHEAD_BYTES + (long) Integer.BYTES * docIds.length;
+  }
+
+  /*
+    Returns the ids contained in all given sorted arrays, and none for no
+    arrays (like a query without clauses).
+   */
+  public static int[] intersect(final int[][] docIdSets) {
+    if (docIdSets.length == 0) {
+      return new int[0];
+    }
+    int[][] sets = docIdSets.clone();
+    // start with the smallest set
+    Arrays.sort(sets, (a, b) -> Integer.compare(a.length, b.length));
+
+    int[] result = sets[0].clone();
+    int length = result.length;
+    for (int s = 1; s < sets.length && length > 0; s++) {
+      int[] other = sets[s];
+      int n = 0;
+      int j = 0;
+      for (int i = 0; i < length; i++) {
+        int docId = result[i];
+        // galloping search for the next id in the larger set
+        int step = 1;
+        int low = j;
+        while (j < other.length && other[j] < docId) {
+          low = j;
+          j += step;
+          step <<= 1;
+        }
+        int high = Math.min(j, other.length - 1);
+        int position = Arrays.binarySearch(
+                other, low, high + 1, docId);
+        if (position >= 0) {
+          result[n++] = docId;
+          j = position + 1;
+        } else {
+          j = -position - 1;
+        }
+      }
+      length = n;
+    }
+    return Arrays.copyOf(result, length);
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/*
+  Growable array of (document, index) pairs, e.g., of the ids of the
+  documents retrieved for each pattern or seed of an iteration. Each pair
+  is packed into a long with the document id in the upper and the index in
+  the lower 32 bits, so that sorting groups the pairs by document.
+
+  The pairs take 8 bytes each, hence the retrieval is split into chunks of
+  at most MAX_PAIRS pairs (128 MB), see chunks.
+ */
+public final class DocIdPairs {
+
+  public static final int MAX_PAIRS = 16 * 1024 * 1024;
+
+  private long[] pairs;
+  private int size = 0;
+
+  public DocIdPairs() {
+    this(LuceneQueryFramework.DOC_ID_BATCH_SIZE);
+  }
+
+  /*
+    The capacity is the expected number of pairs, e.g., the sum of the
+    counts of a chunk.
+   */
+  public DocIdPairs(final int capacity) {
+    pairs = new long[Math.max(1, capacity)];
+  }
+
+  /*
+    Can be called concurrently, the order of the pairs is restored by
+    toSortedArray.
+   */
+  public synchronized void add(final int[] docIds,
+                               final int length,
+                               final int index) {
+    if (size + length > pairs.length) {
+      pairs = Arrays.copyOf(pairs, Math.max(size + length, 2 * pairs.length));
+    }
+    for (int i = 0; i < length; i++) {
+      pairs[size++] = pair(docIds[i], index);
+    }
+  }
+
+  /*
+    Sorts in place if the pairs fill the capacity.
+   */
+  public synchronized long[] toSortedArray() {
+    long[] sorted = size == pairs.length ? pairs : Arrays.copyOf(pairs, size);
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  public static long pair(final int docId, final int index) {
+    return ((long) docId << Integer.SIZE) | index;
+  }
+
+  public static int docId(final long pair) {
+    return (int) (pair >>> Integer.SIZE);
+  }
+
+  public static int index(final long pair) {
+    return (int) pair;
+  }
+
+  /*
+    Returns the end of the pairs of the document of pairs[from].
+   */
+  public static int documentEnd(final long[] pairs,
+                                final int from,
+                                final int to) {
+    int docId = docId(pairs[from]);
+    int end = from + 1;
+    while (end < to && docId(pairs[end]) == docId) {
+      end++;
+    }
+    return end;
+  }
+
+  /*
+    Splits sorted pairs at document boundaries into ranges [from, to) of
+    at most documentsPerRange documents.
+   */
+  public static LinkedList<int[]> split(final long[] pairs,
+                                        final int documentsPerRange) {
+    LinkedList<int[]> ranges = new LinkedList<>();
+    int from = 0;
+    int nDocuments = 0;
+    for (int i = 0; i < pairs.length; i = documentEnd(pairs, i, pairs.length)) {
+      if (nDocuments == documentsPerRange) {
+        ranges.add(new int[] {from, i});
+        from = i;
+        nDocuments = 0;
+      }
+      nDocuments++;
+    }
+    if (from < pairs.length) {
+      ranges.add(new int[] {from, pairs.length});
+    }
+    return ranges;
+  }
+
+  /*
+    Splits the indexes into ranges [from, to) whose counts of pairs sum up
+    to at most maxPairs. An index with more pairs is a range of its own.
+   */
+  public static LinkedList<int[]> chunks(final int[] counts,
+                                         final int maxPairs) {
+    LinkedList<int[]> chunks = new LinkedList<>();
+    int from = 0;
+    long nPairs = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (i > from && nPairs + counts[i] > maxPairs) {
+        chunks.add(new int[] {from, i});
+        from = i;
+        nPairs = 0;
+      }
+      nPairs += counts[i];
+    }
+    if (from < counts.length) {
+      chunks.add(new int[] {from, counts.length});
+    }
+    return chunks;
+  }
+
+  /*
+    Returns the sum of the counts of the range [from, to).
+   */
+  public static long sum(final int[] counts, final int from, final int to) {
+    long sum = 0;
+    for (int i = from; i < to; i++) {
+      sum += counts[i];
+    }
+    return sum;
+  }
+}
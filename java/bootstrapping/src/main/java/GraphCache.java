@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+  Segmented LRU cache of parsed dependency graphs by document id. New
+  graphs enter a probationary segment and are promoted to the protected
+  segment when they are requested again, so that graphs of sentences that
+  match many queries are not evicted by a single large query.
+ */
+public final class GraphCache {
+
+  private static final double PROTECTED_RATIO = 0.8;
+
+  private final int probationCapacity;
+  private final int protectedCapacity;
+  private final LinkedHashMap<Integer, DiGraph> probation =
+          new LinkedHashMap<>(16, 0.75f, true);
+  private final LinkedHashMap<Integer, DiGraph> protectedSegment =
+          new LinkedHashMap<>(16, 0.75f, true);
+
+  private long hits = 0;
+  private long misses = 0;
+
+  public GraphCache(final int capacity) {
+    protectedCapacity = (int) (capacity * PROTECTED_RATIO);
+    probationCapacity = capacity - protectedCapacity;
+  }
+
+  public synchronized DiGraph get(final int docId) {
+    DiGraph graph = protectedSegment.get(docId);
+    if (graph != null) {
+      hits++;
+      return graph;
+    }
+
+    graph = probation.remove(docId);
+    if (graph == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+
+    protectedSegment.put(docId, graph);
+    if (protectedSegment.size() > protectedCapacity) {
+      // demote the least recently used protected graph
+      Iterator<Map.Entry<Integer, DiGraph>> eldest =
+              protectedSegment.entrySet().iterator();
+      Map.Entry<Integer, DiGraph> entry = eldest.next();
+      eldest.remove();
+      addToProbation(entry.getKey(), entry.getValue());
+    }
+    return graph;
+  }
+
+  public synchronized void put(final int docId, final DiGraph graph) {
+    if (!protectedSegment.containsKey(docId)) {
+      addToProbation(docId, graph);
+    }
+  }
+
+  private void addToProbation(final int docId, final DiGraph graph) {
+    probation.put(docId, graph);
+    if (probation.size() > probationCapacity) {
+      Iterator<Integer> eldest = probation.keySet().iterator();
+      eldest.next();
+      eldest.remove();
+    }
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+}
@@ -0,0 +1,316 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.stanford.nlp.simple.Sentence;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.store.FSDirectory;
+
+/*
+  Builds the Lucene index used by LuceneQueryFramework from a file with one
+  sentence per line. The sentences are parsed with CoreNLP by several
+  threads that share one IndexWriter, so that each thread writes its own
+  segments. Each document has the fields
+
+    sentence:   the sentence (indexed and stored)
+    depTree:    the dependency tree in digraph representation (indexed)
+    depTreeBin: the dependency tree encoded by DepTreeCodec (stored)
+    depTriple:  the dependency triples (see DependencyTriples, indexed as
+                exact terms)
+
+  If a tree cannot be encoded, its digraph representation is stored
+  instead of the binary encoding. Sentences whose tree cannot be parsed
+  into a DiGraph are skipped.
+
+  With more than one shard, the sentences are partitioned by their hash
+  into the indexes shard-0, shard-1, ... in the index directory, each
+  served by a ShardWorker.
+ */
+public final class LuceneIndexer {
+
+  private static Logger logger = LogManager.getLogger(LuceneIndexer.class);
+
+  static final double DEFAULT_RAM_BUFFER_MB = 256;
+  static final double DEFAULT_MAX_MERGED_SEGMENT_MB = 5 * 1024;
+  static final double DEFAULT_SEGMENTS_PER_TIER = 10;
+  private static final int QUEUE_SIZE_PER_THREAD = 256;
+  private static final int LOG_INTERVAL = 100000;
+  // compared by identity, so that no input line can end the indexing
+  private static final String END_OF_INPUT = new String("END_OF_INPUT");
+
+  private final String pathLuceneIndex;
+  private final int nThreads;
+  private double ramBufferMB = DEFAULT_RAM_BUFFER_MB;
+  private double maxMergedSegmentMB = DEFAULT_MAX_MERGED_SEGMENT_MB;
+  private double segmentsPerTier = DEFAULT_SEGMENTS_PER_TIER;
+  private int forceMergeSegments = 0;
+  private int shards = 1;
+
+  private final AtomicLong indexed = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  // first error that ended a worker, e.g., an OutOfMemoryError
+  private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+  public LuceneIndexer(final String pathLuceneIndex, final int nThreads) {
+    this.pathLuceneIndex = pathLuceneIndex;
+    this.nThreads = nThreads;
+  }
+
+  /*
+    Documents are buffered in memory until the buffer is full and then
+    written as new segment by the thread that filled it.
+   */
+  public void setRamBufferMB(final double ramBufferMB) {
+    this.ramBufferMB = ramBufferMB;
+  }
+
+  /*
+    Parameters of the TieredMergePolicy that merges the written segments.
+   */
+  public void setMergePolicy(final double maxMergedSegmentMB,
+                             final double segmentsPerTier) {
+    this.maxMergedSegmentMB = maxMergedSegmentMB;
+    this.segmentsPerTier = segmentsPerTier;
+  }
+
+  /*
+    Merges the index to at most the given number of segments after all
+    sentences are indexed. 0 disables the final merge.
+   */
+  public void setForceMergeSegments(final int forceMergeSegments) {
+    this.forceMergeSegments = forceMergeSegments;
+  }
+
+  /*
+    Number of index shards to partition the sentences into.
+   */
+  public void setShards(final int shards) {
+    this.shards = shards;
+  }
+
+  /*
+    Returns the directory of the shard, see LuceneIndexer.
+   */
+  public static Path shardPath(final String pathLuceneIndex,
+                               final int shard) {
+    return Paths.get(pathLuceneIndex, "shard-" + shard);
+  }
+
+  public void index(final String pathSentences) throws IOException {
+    IndexWriter[] writers = new IndexWriter[shards];
+    try {
+      for (int i = 0; i < shards; i++) {
+        writers[i] = new IndexWriter(FSDirectory.open(shards == 1
+                ? Paths.get(pathLuceneIndex)
+                : shardPath(pathLuceneIndex, i)), createConfig());
+      }
+      index(pathSentences, writers);
+    } finally {
+      for (IndexWriter writer : writers) {
+        if (writer != null) {
+          writer.close();
+        }
+      }
+    }
+  }
+
+  private IndexWriterConfig createConfig() {
+    TieredMergePolicy mergePolicy = new TieredMergePolicy();
+    mergePolicy.setMaxMergedSegmentMB(maxMergedSegmentMB);
+    mergePolicy.setSegmentsPerTier(segmentsPerTier);
+
+    IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+    config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+    // the buffer is shared by the shards
+    config.setRAMBufferSizeMB(ramBufferMB / shards);
+    config.setMergePolicy(mergePolicy);
+    return config;
+  }
+
+  private void index(final String pathSentences,
+                     final IndexWriter[] writers) throws IOException {
+    BlockingQueue<String> lines =
+            new ArrayBlockingQueue<>(QUEUE_SIZE_PER_THREAD * nThreads);
+
+    LinkedList<Thread> workers = new LinkedList<>();
+    for (int i = 0; i < nThreads; i++) {
+      Thread worker = new Thread(() -> indexSentences(lines, writers));
+      worker.start();
+      workers.add(worker);
+    }
+
+    try {
+      readSentences(pathSentences, lines);
+      for (Thread worker : workers) {
+        worker.join();
+      }
+    } catch (InterruptedException e) {
+      workers.forEach(Thread::interrupt);
+      Thread.currentThread().interrupt();
+      throw new IOException("Indexing interrupted", e);
+    }
+    if (error.get() != null) {
+      for (IndexWriter writer : writers) {
+        writer.rollback();
+      }
+      throw new IOException("Indexing failed", error.get());
+    }
+    logger.info("Indexed " + indexed.get() + " sentences, skipped "
+            + skipped.get() + ", failed " + failed.get());
+
+    for (IndexWriter writer : writers) {
+      writer.commit();
+      if (forceMergeSegments > 0) {
+        logger.info("Merging index to " + forceMergeSegments + " segments");
+        writer.forceMerge(forceMergeSegments);
+      }
+    }
+  }
+
+  private void readSentences(final String pathSentences,
+                             final BlockingQueue<String> lines)
+          throws IOException, InterruptedException {
+    try (BufferedReader br = Files.newBufferedReader(
+            Paths.get(pathSentences), StandardCharsets.UTF_8)) {
+      String line;
+      // stop early if a worker failed, the index is discarded anyway
+      while ((line = br.readLine()) != null && error.get() == null) {
+        if (!line.trim().isEmpty()) {
+          lines.put(line);
+        }
+      }
+    } finally {
+      // one end marker per worker
+      for (int i = 0; i < nThreads; i++) {
+        lines.put(END_OF_INPUT);
+      }
+    }
+  }
+
+  private void indexSentences(final BlockingQueue<String> lines,
+                              final IndexWriter[] writers) {
+    try {
+      String line;
+      while ((line = lines.take()) != END_OF_INPUT) {
+        // a failing document must not end the worker, otherwise the rest
+        // of the input is lost or the reader blocks on the full queue
+        try {
+          indexSentence(line, writers);
+        } catch (Exception e) {
+          failed.incrementAndGet();
+          logger.warn("Failed to index sentence: " + line, e);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      // keep taking lines until the end marker, otherwise the reader may
+      // block on the full queue forever
+      error.compareAndSet(null, e);
+      logger.error("Indexing worker failed", e);
+      drain(lines);
+    }
+  }
+
+  private static void drain(final BlockingQueue<String> lines) {
+    try {
+      while (lines.take() != END_OF_INPUT) {
+        // discard
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void indexSentence(final String line,
+                             final IndexWriter[] writers) throws IOException {
+    Document document = createDocument(line);
+    if (document == null) {
+      skipped.incrementAndGet();
+      return;
+    }
+    // the same sentence always goes to the same shard
+    writers[Math.floorMod(line.hashCode(), writers.length)]
+            .addDocument(document);
+    long n = indexed.incrementAndGet();
+    if (n % LOG_INTERVAL == 0) {
+      logger.info("Indexed " + n + " sentences");
+    }
+  }
+
+  private Document createDocument(final String line) {
+    String depTree;
+    DiGraph graph;
+    try {
+      depTree = new Sentence(line).dependencyGraph().toDotFormat();
+      // sentences without triples could not be retrieved by patterns
+      graph = new DiGraph(depTree);
+    } catch (Exception e) {
+      return null;
+    }
+
+    Document document = new Document();
+    document.add(new TextField(LuceneQueryFramework.SENTENCE_FIELD, line,
+            Field.Store.YES));
+    try {
+      document.add(new TextField(LuceneQueryFramework.DEP_TREE_FIELD,
+              depTree, Field.Store.NO));
+      document.add(new StoredField(LuceneQueryFramework.DEP_TREE_BINARY_FIELD,
+              DepTreeCodec.encode(depTree)));
+    } catch (Exception e) {
+      document.removeFields(LuceneQueryFramework.DEP_TREE_FIELD);
+      document.add(new TextField(LuceneQueryFramework.DEP_TREE_FIELD,
+              depTree, Field.Store.YES));
+    }
+    for (String triple : DependencyTriples.of(graph)) {
+      document.add(new StringField(LuceneQueryFramework.DEP_TRIPLE_FIELD,
+              triple, Field.Store.NO));
+    }
+    return document;
+  }
+}
@@ -25,26 +25,75 @@
  */
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.MMapDirectory;
 
 public final class LuceneQueryFramework {
 
+  static final int DOC_ID_BATCH_SIZE = 1024;
+  // matches of a query that are collected from the segments in parallel
+  // and sorted before they are passed on
+  static final int MAX_SORTED_DOC_IDS = 256 * DOC_ID_BATCH_SIZE;
+  static final String SENTENCE_FIELD = "sentence";
+  static final String DEP_TREE_FIELD = "depTree";
+  static final String DEP_TREE_BINARY_FIELD = "depTreeBin";
+  static final String DEP_TRIPLE_FIELD = "depTriple";
+  static final long DEFAULT_DOC_ID_CACHE_BYTES = 1024L * 1024 * 1024;
+  static final int DEFAULT_GRAPH_CACHE_SIZE = 100000;
+  // a single entry may use at most this fraction of the doc id cache
+  private static final int DOC_ID_CACHE_ENTRY_FRACTION = 8;
+
+  private static Logger logger =
+          LogManager.getLogger(LuceneQueryFramework.class);
+
   private IndexSearcher searcher;
+  // searches the segments one after another, in the order of the doc ids
+  private IndexSearcher sequentialSearcher;
   private IndexReader reader;
+  private ExecutorService searchExecutor;
+  private ExecutorService streamExecutor;
+  private DocIdCache docIdCache;
+  private GraphCache graphCache;
+  // whether the index has the dependency triples of the sentences
+  private boolean hasTriples;
+
+  /*
+    Receives the ids of matching documents in batches. The array is reused
+    for the next batch, only the first length entries are valid.
+   */
+  public interface DocIdConsumer {
+    void accept(int[] docIds, int length) throws IOException;
+  }
 
   public LuceneQueryFramework(final String pathLuceneIndex) {
     try {
@@ -52,43 +101,222 @@ public final class LuceneQueryFramework {
               Paths.get(pathLuceneIndex));
       dir.setPreload(true);
       reader = DirectoryReader.open(dir);
-      searcher = new IndexSearcher(reader);
+      hasTriples = MultiFields.getMergedFieldInfos(reader)
+              .fieldInfo(DEP_TRIPLE_FIELD) != null;
+      if (!hasTriples) {
+        logger.info("Index without " + DEP_TRIPLE_FIELD
+                + " field, patterns are retrieved by phrase queries");
+      }
+      // the segments of one query are searched in parallel; the executor
+      // must not be the one of the extraction tasks waiting for the search
+      searchExecutor = Executors.newFixedThreadPool(Main.MAX_THREADS, r -> {
+        Thread thread = new Thread(r, "lucene-search");
+        thread.setDaemon(true);
+        return thread;
+      });
+      searcher = new IndexSearcher(reader, searchExecutor);
+      sequentialSearcher = new IndexSearcher(reader);
+      // runs the searches of sentence streams, which block while the
+      // consumer is behind
+      streamExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "lucene-stream");
+        thread.setDaemon(true);
+        return thread;
+      });
     } catch (IOException e) {
       e.printStackTrace();
     }
+    setCacheSizes(DEFAULT_DOC_ID_CACHE_BYTES, DEFAULT_GRAPH_CACHE_SIZE);
   }
 
-  public LinkedList<PreprocessedSentence> instanceQuery(
-          final String causeSeed, final String effectSeed) {
-    LinkedList<PreprocessedSentence> sentences = new LinkedList<>();
-    String queryString = "(sentence:\"" + causeSeed;
-    queryString += "\") AND (sentence:\"" + effectSeed + "\")";
+  /*
+    Sets the memory of the cache of matching doc ids per query clause and
+    conjunction of clauses, and the number of parsed graphs to cache.
+    0 disables the respective cache.
+   */
+  public void setCacheSizes(final long docIdCacheBytes,
+                            final int graphCacheSize) {
+    long maxEntryIds = docIdCacheBytes / Integer.BYTES
+            / DOC_ID_CACHE_ENTRY_FRACTION;
+    docIdCache = docIdCacheBytes > 0
+            ? new DocIdCache(docIdCacheBytes,
+                    (int) Math.min(Integer.MAX_VALUE, maxEntryIds))
+            : null;
+    graphCache = graphCacheSize > 0 ? new GraphCache(graphCacheSize) : null;
+  }
+
+  public void logCacheStatistics() {
+    if (docIdCache != null) {
+      logger.info("Doc id cache: " + docIdCache.getHits() + " hits, "
+              + docIdCache.getMisses() + " misses");
+    }
+    if (graphCache != null) {
+      logger.info("Graph cache: " + graphCache.getHits() + " hits, "
+              + graphCache.getMisses() + " misses");
+    }
+  }
+
+  public void close() {
+    streamExecutor.shutdownNow();
+    searchExecutor.shutdown();
     try {
-      Analyzer analyzer = new StandardAnalyzer();
-      QueryParser parser = new QueryParser("sentence", analyzer);
-      Query query = parser.parse(queryString);
-      TopDocs docs = searcher.search(query, reader.numDocs());
-
-      for (ScoreDoc d : docs.scoreDocs) {
-        Document document = searcher.doc(d.doc);
-        PreprocessedSentence s = new PreprocessedSentence(
-                document.get("depTree")
-        );
-        sentences.add(s);
-      }
-    } catch (IOException | ParseException e) {
+      reader.close();
+    } catch (IOException e) {
       e.printStackTrace();
     }
+  }
 
+  public LinkedList<PreprocessedSentence> instanceQuery(
+          final String causeSeed, final String effectSeed) {
+    LinkedList<PreprocessedSentence> sentences = new LinkedList<>();
+    instanceQuery(causeSeed, effectSeed,
+            (docIds, length) -> loadSentences(docIds, length, sentences));
     return sentences;
   }
 
   public LinkedList<PreprocessedSentence> patternQuery(
           final PathPattern pattern) {
     LinkedList<PreprocessedSentence> sentences = new LinkedList<>();
+    patternQuery(pattern,
+            (docIds, length) -> loadSentences(docIds, length, sentences));
+    return sentences;
+  }
+
+  /*
+    Returns the sentences containing both seeds, retrieved in bounded
+    batches while they are consumed.
+   */
+  public SentenceStream streamInstanceQuery(final String causeSeed,
+                                            final String effectSeed) {
+    try {
+      return stream(buildInstanceClauses(causeSeed, effectSeed));
+    } catch (ParseException e) {
+      e.printStackTrace();
+      return emptyStream();
+    }
+  }
+
+  /*
+    Returns the sentences whose dependency tree contains the nodes and edges
+    of the pattern, retrieved in bounded batches while they are consumed.
+   */
+  public SentenceStream streamPatternQuery(final PathPattern pattern) {
+    try {
+      return stream(buildPatternClauses(pattern));
+    } catch (ParseException e) {
+      e.printStackTrace();
+      return emptyStream();
+    }
+  }
+
+  /*
+    Streams the ids of all sentences containing both seeds to the consumer,
+    without scoring or ranking the matches. The consumer is called by the
+    search threads, but never concurrently.
+   */
+  public void instanceQuery(final String causeSeed,
+                            final String effectSeed,
+                            final DocIdConsumer consumer) {
+    try {
+      retrieve(buildInstanceClauses(causeSeed, effectSeed), consumer);
+    } catch (IOException | ParseException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /*
+    Streams the ids of all sentences whose dependency tree contains the
+    nodes and edges of the pattern to the consumer, without scoring or
+    ranking the matches.
+   */
+  public void patternQuery(final PathPattern pattern,
+                           final DocIdConsumer consumer) {
+    try {
+      retrieve(buildPatternClauses(pattern), consumer);
+    } catch (IOException | ParseException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /*
+    Returns the number of sentences containing both seeds, without
+    retrieving them.
+   */
+  public int countInstanceQuery(final String causeSeed,
+                                final String effectSeed) {
+    return count(buildInstanceClauses(causeSeed, effectSeed));
+  }
+
+  /*
+    Returns the number of sentences retrieved by patternQuery, without
+    retrieving them.
+   */
+  public int countPatternQuery(final PathPattern pattern) {
+    return count(buildPatternClauses(pattern));
+  }
+
+  private int count(final List<String> clauses) {
+    try {
+      return searcher.count(toQuery(clauses));
+    } catch (IOException | ParseException e) {
+      e.printStackTrace();
+      return 0;
+    }
+  }
+
+  /*
+    Loads only the dependency tree of the sentence, preferring the binary
+    encoding over the digraph representation.
+   */
+  public PreprocessedSentence loadSentence(final int docId)
+          throws IOException {
+    PreprocessedSentence sentence;
+    if (graphCache == null) {
+      DepTreeVisitor visitor = new DepTreeVisitor();
+      reader.document(docId, visitor);
+      sentence = visitor.getSentence();
+    } else {
+      DiGraph graph = graphCache.get(docId);
+      if (graph == null) {
+        DepTreeVisitor visitor = new DepTreeVisitor();
+        reader.document(docId, visitor);
+        graph = visitor.getSentence().toGraph();
+        graphCache.put(docId, graph);
+      }
+      sentence = new PreprocessedSentence(graph);
+    }
+    sentence.setDocId(docId);
+    return sentence;
+  }
+
+  private void loadSentences(final int[] docIds,
+                             final int length,
+                             final LinkedList<PreprocessedSentence> sentences)
+          throws IOException {
+    for (int i = 0; i < length; i++) {
+      sentences.add(loadSentence(docIds[i]));
+    }
+  }
+
+  private List<String> buildInstanceClauses(final String causeSeed,
+                                            final String effectSeed) {
+    return Arrays.asList(
+            SENTENCE_FIELD + ":\"" + causeSeed + "\"",
+            SENTENCE_FIELD + ":\"" + effectSeed + "\"");
+  }
+
+  private List<String> buildPatternClauses(final PathPattern pattern) {
+    if (hasTriples) {
+      List<String> clauses = new ArrayList<>();
+      for (String triple : DependencyTriples.of(pattern)) {
+        clauses.add(DEP_TRIPLE_FIELD + ":" + triple);
+      }
+      return clauses;
+    }
+
     String[] parts = pattern.getParts();
 
-    StringBuilder treeQuery = new StringBuilder();
+    List<String> clauses = new ArrayList<>();
 
     for (int i = 1; i < parts.length - 1; i++) {
       String part = parts[i];
@@ -98,28 +326,339 @@ public final class LuceneQueryFramework {
         part = part.substring(1);
       }
 
-      treeQuery.append("depTree:\"").append(part).append("\"");
+      clauses.add(DEP_TREE_FIELD + ":\"" + part + "\"");
+    }
+
+    return clauses;
+  }
+
+  /*
+    Same query as parsing the clauses joined by AND.
+   */
+  private Query toQuery(final List<String> clauses) throws ParseException {
+    BooleanQuery.Builder query = new BooleanQuery.Builder();
+    for (String clause : clauses) {
+      query.add(parse(clause), BooleanClause.Occur.MUST);
+    }
+    return query.build();
+  }
+
+  /*
+    Triple clauses are exact terms, all other clauses are parsed.
+   */
+  private Query parse(final String queryString) throws ParseException {
+    if (queryString.startsWith(DEP_TRIPLE_FIELD + ":")) {
+      return new TermQuery(new Term(DEP_TRIPLE_FIELD,
+              queryString.substring(DEP_TRIPLE_FIELD.length() + 1)));
+    }
+    Analyzer analyzer = new StandardAnalyzer();
+    QueryParser parser = new QueryParser(SENTENCE_FIELD, analyzer);
+    return parser.parse(queryString);
+  }
+
+  private SentenceStream stream(final List<String> clauses)
+          throws ParseException {
+    // parse errors are reported to the caller
+    for (String clause : clauses) {
+      parse(clause);
+    }
+
+    SentenceStream stream = new SentenceStream(this);
+    streamExecutor.execute(() -> {
+      try {
+        retrieve(clauses, stream::add);
+      } catch (IOException | ParseException | RuntimeException e) {
+        // closing the stream before all sentences are consumed stops the
+        // search with an exception
+        if (!stream.isClosed()) {
+          e.printStackTrace();
+        }
+      } finally {
+        stream.end();
+      }
+    });
+    return stream;
+  }
+
+  private SentenceStream emptyStream() {
+    SentenceStream stream = new SentenceStream(this);
+    stream.end();
+    return stream;
+  }
 
-      if (i != parts.length - 2) {
-        treeQuery.append(" AND ");
+  /*
+    Passes the ids of the documents matching all clauses to the consumer,
+    from the doc id cache if the conjunction or all of its clauses are
+    cached. Otherwise, the conjunction is searched and cached afterwards if
+    its ids were sorted by search.
+   */
+  private void retrieve(final List<String> clauses,
+                        final DocIdConsumer consumer)
+          throws IOException, ParseException {
+    if (docIdCache == null) {
+      search(toQuery(clauses), consumer);
+      return;
+    }
+
+    String key = conjunctionKey(clauses);
+    if (docIdCache.isTooLarge(key)) {
+      search(toQuery(clauses), consumer);
+      return;
+    }
+    int[] docIds = docIdCache.get(key);
+    if (docIds == null) {
+      docIds = intersectClauses(clauses);
+      if (docIds != null) {
+        docIdCache.put(key, docIds);
       }
     }
+    if (docIds != null) {
+      replay(docIds, consumer);
+      return;
+    }
 
-    try {
-      Analyzer analyzer = new StandardAnalyzer();
-      QueryParser parser = new QueryParser("sentence", analyzer);
-      Query query = parser.parse(treeQuery.toString());
-      TopDocs docs = searcher.search(query, searcher.count(query));
-
-      for (ScoreDoc d : docs.scoreDocs) {
-        Document document = searcher.doc(d.doc);
-        sentences.add(new PreprocessedSentence(
-                document.get("depTree")
-        ));
-      }
-    } catch (ParseException | IOException e) {
-      e.printStackTrace();
+    docIds = search(toQuery(clauses), consumer);
+    if (docIds == null || docIds.length > docIdCache.getMaxEntryIds()) {
+      docIdCache.markTooLarge(key);
+    } else {
+      docIdCache.put(key, docIds);
+    }
+  }
+
+  /*
+    Returns the ids of the documents matching all clauses if each clause
+    matches few enough documents to be cached, otherwise null.
+   */
+  private int[] intersectClauses(final List<String> clauses)
+          throws IOException, ParseException {
+    for (String clause : clauses) {
+      if (docIdCache.isTooLarge(clause)) {
+        return null;
+      }
+    }
+
+    int[][] docIdSets = new int[clauses.size()][];
+    for (int i = 0; i < docIdSets.length; i++) {
+      String clause = clauses.get(i);
+      int[] docIds = docIdCache.get(clause);
+      if (docIds == null) {
+        Query query = parse(clause);
+        if (searcher.count(query) > docIdCache.getMaxEntryIds()) {
+          docIdCache.markTooLarge(clause);
+          return null;
+        }
+        DocIdRecorder recorder =
+                new DocIdRecorder(docIdCache.getMaxEntryIds());
+        collect(query, recorder);
+        docIds = recorder.getSortedDocIds();
+        if (docIds == null) {
+          docIdCache.markTooLarge(clause);
+          return null;
+        }
+        docIdCache.put(clause, docIds);
+      }
+      docIdSets[i] = docIds;
+    }
+    return DocIdCache.intersect(docIdSets);
+  }
+
+  private static String conjunctionKey(final List<String> clauses) {
+    List<String> sorted = new ArrayList<>(clauses);
+    Collections.sort(sorted);
+    return String.join(" AND ", sorted);
+  }
+
+  private static void replay(final int[] docIds,
+                             final DocIdConsumer consumer)
+          throws IOException {
+    int[] batch = new int[Math.min(DOC_ID_BATCH_SIZE, docIds.length)];
+    for (int start = 0; start < docIds.length; start += batch.length) {
+      int length = Math.min(batch.length, docIds.length - start);
+      System.arraycopy(docIds, start, batch, 0, length);
+      consumer.accept(batch, length);
+    }
+  }
+
+  /*
+    Passes the ids of the matching documents to the consumer in ascending
+    order, so that the extractions do not depend on the timing of the
+    parallel search. Results with more than MAX_SORTED_DOC_IDS ids are
+    searched segment by segment instead of being buffered.
+
+    Returns the sorted ids, or null if the result was not buffered.
+   */
+  private int[] search(final Query query, final DocIdConsumer consumer)
+          throws IOException {
+    if (searcher.count(query) <= MAX_SORTED_DOC_IDS) {
+      DocIdRecorder recorder = new DocIdRecorder(MAX_SORTED_DOC_IDS);
+      collect(query, recorder);
+      int[] docIds = recorder.getSortedDocIds();
+      if (docIds != null) {
+        replay(docIds, consumer);
+        return docIds;
+      }
+    }
+
+    DocIdCollector collector = new DocIdCollector(consumer);
+    sequentialSearcher.search(query, collector);
+    collector.flush();
+    return null;
+  }
+
+  /*
+    Passes the ids of the matching documents to the consumer in the order
+    in which the segments searched in parallel find them.
+   */
+  private void collect(final Query query, final DocIdConsumer consumer)
+          throws IOException {
+    searcher.search(query,
+            new CollectorManager<DocIdCollector, Void>() {
+              @Override
+              public DocIdCollector newCollector() {
+                return new DocIdCollector(consumer);
+              }
+
+              @Override
+              public Void reduce(final Collection<DocIdCollector> collectors)
+                      throws IOException {
+                for (DocIdCollector collector : collectors) {
+                  collector.flush();
+                }
+                return null;
+              }
+            });
+  }
+
+  /*
+    Collects the ids of matching documents in a fixed-size buffer that is
+    passed to the consumer whenever it is full, so that the memory needed
+    for a query does not depend on the number of matches or the index size.
+    The collectors of the segments searched in parallel share the consumer
+    and synchronize on it.
+   */
+  private static final class DocIdCollector extends SimpleCollector {
+
+    private final DocIdConsumer consumer;
+    private final int[] docIds = new int[DOC_ID_BATCH_SIZE];
+    private int length = 0;
+    private int docBase = 0;
+
+    DocIdCollector(final DocIdConsumer consumer) {
+      this.consumer = consumer;
+    }
+
+    @Override
+    protected void doSetNextReader(final LeafReaderContext context) {
+      docBase = context.docBase;
+    }
+
+    @Override
+    public void collect(final int doc) throws IOException {
+      docIds[length++] = docBase + doc;
+      if (length == docIds.length) {
+        flush();
+      }
+    }
+
+    void flush() throws IOException {
+      if (length > 0) {
+        synchronized (consumer) {
+          consumer.accept(docIds, length);
+        }
+        length = 0;
+      }
+    }
+
+    @Override
+    public boolean needsScores() {
+      return false;
+    }
+  }
+
+  /*
+    Records the ids until more than maxDocIds ids were matched.
+   */
+  private static final class DocIdRecorder implements DocIdConsumer {
+
+    private final int maxDocIds;
+    private int[] docIds = new int[DOC_ID_BATCH_SIZE];
+    private int length = 0;
+    private boolean tooLarge = false;
+
+    DocIdRecorder(final int maxDocIds) {
+      this.maxDocIds = maxDocIds;
+    }
+
+    @Override
+    public void accept(final int[] batch, final int batchLength)
+            throws IOException {
+      if (tooLarge) {
+        return;
+      }
+      if (length + batchLength > maxDocIds) {
+        tooLarge = true;
+        docIds = null;
+        return;
+      }
+      if (length + batchLength > docIds.length) {
+        docIds = Arrays.copyOf(docIds, Math.min(maxDocIds,
+                Math.max(length + batchLength, 2 * docIds.length)));
+      }
+      System.arraycopy(batch, 0, docIds, length, batchLength);
+      length += batchLength;
+    }
+
+    /*
+      Returns null if too many ids were matched.
+     */
+    int[] getSortedDocIds() {
+      if (tooLarge) {
+        return null;
+      }
+      int[] sorted = Arrays.copyOf(docIds, length);
+      Arrays.sort(sorted);
+      return sorted;
+    }
+  }
+
+  /*
+    Visits only the dependency tree fields of a document and stops after the
+    binary encoding, so that no other stored field is decoded.
+   */
+  private static final class DepTreeVisitor extends StoredFieldVisitor {
+
+    private byte[] depTreeBinary;
+    private byte[] depTree;
+
+    @Override
+    public Status needsField(final FieldInfo fieldInfo) {
+      if (depTreeBinary != null) {
+        return Status.STOP;
+      }
+      if (fieldInfo.name.equals(DEP_TREE_BINARY_FIELD)
+              || fieldInfo.name.equals(DEP_TREE_FIELD)) {
+        return Status.YES;
+      }
+      return Status.NO;
+    }
+
+    @Override
+    public void binaryField(final FieldInfo fieldInfo, final byte[] value) {
+      depTreeBinary = value;
+    }
+
+    @Override
+    public void stringField(final FieldInfo fieldInfo, final byte[] value) {
+      depTree = value;
+    }
+
+    PreprocessedSentence getSentence() {
+      if (depTreeBinary != null) {
+        return new PreprocessedSentence(depTreeBinary);
+      }
+      return new PreprocessedSentence(depTree == null
+              ? null
+              : new String(depTree, StandardCharsets.UTF_8));
     }
-    return sentences;
   }
 }
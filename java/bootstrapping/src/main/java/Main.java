@@ -24,6 +24,7 @@
  *
  */
 
+import java.io.IOException;
 import java.util.Arrays;
 
 import org.apache.logging.log4j.LogManager;
@@ -43,6 +44,15 @@ public final class Main {
   public static void main(final String[] args) {
     Arrays.asList(args).forEach(logger::info);
 
+    if (args[0].equals("index")) {
+      index(args);
+      return;
+    }
+    if (args[0].equals("worker")) {
+      worker(args);
+      return;
+    }
+
     String pathSeeds = args[0];
     String pathLuceneIndex = args[1];
     String pathOutput = args[2];
@@ -53,6 +63,83 @@ public final class Main {
             pathOutput
     );
 
+    // optional flags after the paths
+    boolean resume = false;
+    for (int i = 3; i < args.length; i++) {
+      if (args[i].equals("sentence-major")) {
+        extractor.setSentenceMajorMatching(true);
+      } else if (args[i].equals("seed-batched")) {
+        extractor.setSeedBatchedExtraction(true);
+      } else if (args[i].equals("concurrent-statistics")) {
+        extractor.setConcurrentStatistics(true);
+      } else if (args[i].equals("resume")) {
+        resume = true;
+      } else {
+        logger.warn("Unknown option " + args[i]);
+      }
+    }
+
+    if (resume) {
+      try {
+        extractor.resume();
+      } catch (IOException e) {
+        e.printStackTrace();
+        return;
+      }
+    }
     extractor.bootstrapping();
   }
+
+  /*
+    Arguments: worker <lucene index shard> <port>
+               [sentence-major] [seed-batched]
+   */
+  private static void worker(final String[] args) {
+    ShardWorker worker =
+            new ShardWorker(args[1], Integer.parseInt(args[2]));
+    for (int i = 3; i < args.length; i++) {
+      if (args[i].equals("sentence-major")) {
+        worker.setSentenceMajor(true);
+      } else if (args[i].equals("seed-batched")) {
+        worker.setSeedBatched(true);
+      } else {
+        logger.warn("Unknown option " + args[i]);
+      }
+    }
+
+    try {
+      worker.serve();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    logger.info("Done");
+  }
+
+  /*
+    Arguments: index <sentences> <lucene index> [threads]
+               [RAM buffer in MB] [segments after force merge] [shards]
+   */
+  private static void index(final String[] args) {
+    String pathSentences = args[1];
+    String pathLuceneIndex = args[2];
+    int nThreads = args.length > 3 ? Integer.parseInt(args[3]) : MAX_THREADS;
+
+    LuceneIndexer indexer = new LuceneIndexer(pathLuceneIndex, nThreads);
+    if (args.length > 4) {
+      indexer.setRamBufferMB(Double.parseDouble(args[4]));
+    }
+    if (args.length > 5) {
+      indexer.setForceMergeSegments(Integer.parseInt(args[5]));
+    }
+    if (args.length > 6) {
+      indexer.setShards(Integer.parseInt(args[6]));
+    }
+
+    try {
+      indexer.index(pathSentences);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    logger.info("Done");
+  }
 }
@@ -24,46 +24,235 @@
  *
  */
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/*
+  Runs the extraction tasks of a step on an executor shared by all steps
+  and joins their results in completion order. The results are passed to
+  addNew in submission order nevertheless (each as soon as all earlier
+  tasks are done), so that the output does not depend on the timing.
+  Progress and the longest running task are logged periodically.
+ */
 public abstract class ParallelExtractor<T> {
 
-  private LinkedList<Future<LinkedList<T>>> tasks = new LinkedList<>();
-  private ThreadPoolExecutor executor;
+  private static Logger logger = LogManager.getLogger(ParallelExtractor.class);
+
+  private static final long PROGRESS_INTERVAL_MS = 10000;
 
-  public ParallelExtractor() {
-    executor = (ThreadPoolExecutor)
-            Executors.newFixedThreadPool(Main.MAX_THREADS);
+  private ArrayList<Task<T>> tasks = new ArrayList<>();
+  private ExecutorService executor;
+  private CompletionService<Task<T>> completionService;
+  private Consumer<T> recorder;
+
+  public ParallelExtractor(final ExecutorService executor) {
+    this.executor = executor;
+    completionService = new ExecutorCompletionService<>(executor);
   }
 
   protected abstract void addNew(LinkedList<T> foundT);
 
+  /*
+    If a recorder is set, the results of each task are passed to it by the
+    worker thread as soon as the task is done and are not joined. The
+    recorder must be thread-safe.
+   */
+  protected final void setRecorder(final Consumer<T> recorder) {
+    this.recorder = recorder;
+  }
+
+  /*
+    The string representation of the callable describes the task in the
+    log.
+   */
   protected final void submit(final Callable<LinkedList<T>> callable) {
-    tasks.add(executor.submit(callable));
+    Task<T> task = new Task<>(tasks.size(), callable, recorder);
+    tasks.add(task);
+    completionService.submit(task);
+  }
+
+  /*
+    Runs the actions on the executor and waits until all of them are done,
+    e.g., the retrieval of the sentences of all patterns before they are
+    split into extraction tasks.
+   */
+  protected final void runAll(final List<Runnable> actions) {
+    List<Future<?>> futures = new ArrayList<>();
+    for (Runnable action : actions) {
+      futures.add(executor.submit(action));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        e.printStackTrace();
+      } catch (InterruptedException e) {
+        e.printStackTrace();
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
   }
 
   protected final void joinResults() {
-    for (Future<LinkedList<T>> future : tasks) {
-      LinkedList<T> foundT = null;
+    int n = tasks.size();
+    long start = System.nanoTime();
+    long lastProgress = start;
+    int finished = 0;
+    int next = 0;
+    Task<T> slowest = null;
+
+    while (finished < n) {
+      Future<Task<T>> future;
       try {
-        foundT = future.get();
-      } catch (InterruptedException | ExecutionException e) {
+        future = completionService.poll(
+                PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
         e.printStackTrace();
+        Thread.currentThread().interrupt();
+        break;
       }
-      if (foundT == null || foundT.isEmpty()) {
-        continue;
+
+      if (future != null) {
+        Task<T> task = getTask(future);
+        finished++;
+        if (slowest == null || task.getNanos() > slowest.getNanos()) {
+          slowest = task;
+        }
+        // pass on the results of all tasks done up to the first pending one
+        while (next < n && tasks.get(next).isDone()) {
+          LinkedList<T> foundT = tasks.get(next).takeResult();
+          if (foundT != null && !foundT.isEmpty()) {
+            addNew(foundT);
+          }
+          next++;
+        }
       }
-      addNew(foundT);
+
+      long now = System.nanoTime();
+      if (now - lastProgress
+              >= TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MS)) {
+        logProgress(finished, n, now);
+        lastProgress = now;
+      }
+    }
+
+    if (slowest != null) {
+      logger.info("Finished " + finished + " tasks in "
+              + millis(System.nanoTime() - start) + " ms, slowest: "
+              + slowest + " (" + millis(slowest.getNanos()) + " ms)");
     }
     tasks.clear();
   }
 
-  protected final void finish() {
-    executor.shutdown();
+  private Task<T> getTask(final Future<Task<T>> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException | ExecutionException e) {
+      // tasks catch their exceptions and errors, see Task.call
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void logProgress(final int finished, final int n, final long now) {
+    Task<T> longestRunning = null;
+    for (Task<T> task : tasks) {
+      if (task.isRunning() && (longestRunning == null
+              || task.getStart() < longestRunning.getStart())) {
+        longestRunning = task;
+      }
+    }
+
+    String message = "Finished " + finished + " of " + n + " tasks";
+    if (longestRunning != null) {
+      message += ", longest running: " + longestRunning + " ("
+              + millis(now - longestRunning.getStart()) + " ms)";
+    }
+    logger.info(message);
+  }
+
+  private static long millis(final long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /*
+    Runs a callable and records its result, or null if it failed, and its
+    start and end time.
+   */
+  private static final class Task<T> implements Callable<Task<T>> {
+
+    private final int index;
+    private final Callable<LinkedList<T>> callable;
+    private final Consumer<T> recorder;
+
+    private volatile long start = 0;
+    private volatile long end = 0;
+    private volatile boolean done = false;
+    private LinkedList<T> result;
+
+    Task(final int index,
+         final Callable<LinkedList<T>> callable,
+         final Consumer<T> recorder) {
+      this.index = index;
+      this.callable = callable;
+      this.recorder = recorder;
+    }
+
+    @Override
+    public Task<T> call() {
+      start = System.nanoTime();
+      try {
+        result = callable.call();
+        if (recorder != null && result != null) {
+          result.forEach(recorder);
+          result = null;
+        }
+      } catch (Throwable e) {
+        // like an exception, an error only loses the results of this task
+        e.printStackTrace();
+      }
+      end = System.nanoTime();
+      done = true;
+      return this;
+    }
+
+    boolean isRunning() {
+      return start != 0 && !done;
+    }
+
+    boolean isDone() {
+      return done;
+    }
+
+    long getStart() {
+      return start;
+    }
+
+    long getNanos() {
+      return end - start;
+    }
+
+    LinkedList<T> takeResult() {
+      LinkedList<T> r = result;
+      result = null;
+      return r;
+    }
+
+    @Override
+    public String toString() {
+      return "task " + index + " " + callable;
+    }
   }
 }
@@ -24,16 +24,57 @@
  *
  */
 
+/*
+  Dependency tree of a sentence from the Lucene index, either in the binary
+  encoding of DepTreeCodec, for indexes without binary field in the digraph
+  representation, or already parsed (see GraphCache).
+ */
 public final class PreprocessedSentence {
 
   private String depTree;
+  private byte[] depTreeBinary;
+  private DiGraph graph;
+  private int docId = -1;
 
   public PreprocessedSentence(final String depTree) {
     this.depTree = depTree;
   }
 
+  public PreprocessedSentence(final byte[] depTreeBinary) {
+    this.depTreeBinary = depTreeBinary;
+  }
+
+  public PreprocessedSentence(final DiGraph graph) {
+    this.graph = graph;
+  }
+
+  /*
+    Returns the digraph representation, or null if the sentence was loaded
+    in binary encoding or as graph.
+   */
   public String getDependencies() {
     return depTree;
   }
 
+  public void setDocId(final int docId) {
+    this.docId = docId;
+  }
+
+  /*
+    Returns the Lucene doc id of the sentence, or -1 if unknown.
+   */
+  public int getDocId() {
+    return docId;
+  }
+
+  public DiGraph toGraph() {
+    if (graph != null) {
+      return graph;
+    }
+    if (depTreeBinary != null) {
+      return DepTreeCodec.decode(depTreeBinary);
+    }
+    return new DiGraph(depTree);
+  }
+
 }
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+  Sentences matching a query, retrieved while they are consumed. The search
+  runs in a separate thread and passes the ids of the matching documents in
+  batches through a bounded queue, so that at most QUEUE_SIZE batches of
+  ids are held at once. The sentences are loaded from the index by the
+  consuming thread one at a time.
+
+  Must be closed, which stops the search if not all sentences were consumed.
+ */
+public final class SentenceStream
+        implements Iterator<PreprocessedSentence>, AutoCloseable {
+
+  static final int QUEUE_SIZE = 4;
+
+  // compared by identity
+  private static final int[] END_OF_STREAM = new int[0];
+
+  private final LuceneQueryFramework queryFramework;
+  private final BlockingQueue<int[]> batches =
+          new ArrayBlockingQueue<>(QUEUE_SIZE);
+  private volatile boolean closed = false;
+
+  private int[] batch = null;
+  private int position = 0;
+
+  SentenceStream(final LuceneQueryFramework queryFramework) {
+    this.queryFramework = queryFramework;
+  }
+
+  /*
+    Called by the search thread for each batch of matching documents.
+   */
+  void add(final int[] docIds, final int length) throws IOException {
+    if (closed) {
+      throw new InterruptedIOException("Sentence stream closed");
+    }
+    try {
+      batches.put(Arrays.copyOf(docIds, length));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Sentence stream interrupted");
+    }
+  }
+
+  /*
+    Called by the search thread after the last batch.
+   */
+  void end() {
+    if (closed) {
+      batches.offer(END_OF_STREAM);
+      return;
+    }
+    try {
+      batches.put(END_OF_STREAM);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (batch != END_OF_STREAM
+            && (batch == null || position == batch.length)) {
+      try {
+        batch = batches.take();
+        position = 0;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        return false;
+      }
+    }
+    return batch != END_OF_STREAM;
+  }
+
+  @Override
+  public PreprocessedSentence next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      return queryFramework.loadSentence(batch[position++]);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    batch = END_OF_STREAM;
+    // unblock the search thread, which then stops at the next batch
+    batches.clear();
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/*
+  Sends the seeds and patterns of an iteration to the ShardWorkers of all
+  index shards and merges the statistics aggregated by the workers, so
+  that the selectors select from the statistics of the whole corpus while
+  the individual extractions never leave the workers.
+
+  A failing shard fails the extraction with an UncheckedIOException
+  instead of silently missing its part of the statistics; the run can then
+  be resumed from the last checkpoint.
+ */
+public final class ShardCoordinator implements AutoCloseable {
+
+  private static Logger logger = LogManager.getLogger(ShardCoordinator.class);
+
+  // workers only accept connections once their shard is loaded
+  private static final long CONNECT_TIMEOUT_MS = TimeUnit.HOURS.toMillis(2);
+  private static final long MIN_RETRY_DELAY_MS = 1000;
+  private static final long MAX_RETRY_DELAY_MS = 60 * 1000;
+
+  private List<Socket> sockets = new ArrayList<>();
+  private List<DataInputStream> ins = new ArrayList<>();
+  private List<DataOutputStream> outs = new ArrayList<>();
+  private ExecutorService executor;
+
+  /*
+    Request of one shard, see ShardWorker.
+   */
+  private interface Request {
+    void write(DataOutputStream out) throws IOException;
+
+    void read(DataInputStream in, int shard) throws IOException;
+  }
+
+  /*
+    Connects to the workers at the given host:port addresses, waiting for
+    workers that are not ready yet.
+   */
+  public ShardCoordinator(final List<String> addresses) throws IOException {
+    for (String address : addresses) {
+      Socket socket = connect(address);
+      sockets.add(socket);
+      ins.add(new DataInputStream(
+              new BufferedInputStream(socket.getInputStream())));
+      outs.add(new DataOutputStream(
+              new BufferedOutputStream(socket.getOutputStream())));
+      logger.info("Connected to shard worker " + address);
+    }
+    executor = Executors.newFixedThreadPool(sockets.size());
+  }
+
+  /*
+    Retries refused connections with exponential backoff until
+    CONNECT_TIMEOUT_MS.
+   */
+  private static Socket connect(final String address) throws IOException {
+    int separator = address.lastIndexOf(':');
+    String host = address.substring(0, separator);
+    int port = Integer.parseInt(address.substring(separator + 1));
+
+    long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+    long delay = MIN_RETRY_DELAY_MS;
+    while (true) {
+      try {
+        return new Socket(host, port);
+      } catch (ConnectException e) {
+        if (System.currentTimeMillis() + delay > deadline) {
+          throw e;
+        }
+        logger.info("Shard worker " + address + " not ready, retrying in "
+                + delay / 1000 + " s");
+      }
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Connecting to " + address + " interrupted", e);
+      }
+      delay = Math.min(2 * delay, MAX_RETRY_DELAY_MS);
+    }
+  }
+
+  /*
+    Extracts the patterns of the seeds from all shards and merges their
+    statistics into the table.
+   */
+  public void extractPatterns(final List<Instance> seeds,
+                              final PatternStatisticsTable statistics) {
+    request(new Request() {
+      @Override
+      public void write(final DataOutputStream out) throws IOException {
+        out.writeInt(ShardWorker.EXTRACT_PATTERNS);
+        Checkpoint.writeInstances(out, seeds);
+      }
+
+      @Override
+      public void read(final DataInputStream in, final int shard)
+              throws IOException {
+        // the merged patterns share the seeds
+        InstanceTable<Instance> seedTable = new InstanceTable<>();
+        seeds.forEach(s -> seedTable.putIfAbsent(s.getKey(), s));
+        statistics.merge(in, seedTable);
+      }
+    });
+  }
+
+  /*
+    Extracts the instances of the patterns from all shards and merges their
+    statistics into the table.
+   */
+  public void extractInstances(final List<PathPattern> patterns,
+                               final InstanceStatisticsTable statistics) {
+    List<String> strings = new ArrayList<>();
+    for (PathPattern p : patterns) {
+      strings.add(p.getPattern());
+    }
+
+    request(new Request() {
+      @Override
+      public void write(final DataOutputStream out) throws IOException {
+        out.writeInt(ShardWorker.EXTRACT_INSTANCES);
+        Checkpoint.writeStrings(out, strings);
+      }
+
+      @Override
+      public void read(final DataInputStream in, final int shard)
+              throws IOException {
+        // the evidence of the instances is assigned to the shard
+        statistics.merge(in, shard);
+      }
+    });
+  }
+
+  private void request(final Request request) {
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < sockets.size(); i++) {
+      int shard = i;
+      DataInputStream in = ins.get(i);
+      DataOutputStream out = outs.get(i);
+      futures.add(executor.submit(() -> {
+        request.write(out);
+        out.flush();
+        request.read(in, shard);
+        return null;
+      }));
+    }
+
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        futures.get(i).get();
+      } catch (InterruptedException | ExecutionException e) {
+        throw new UncheckedIOException(new IOException(
+                "Extraction of shard " + i + " failed", e));
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    for (int i = 0; i < sockets.size(); i++) {
+      try {
+        outs.get(i).writeInt(ShardWorker.QUIT);
+        outs.get(i).flush();
+        sockets.get(i).close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    executor.shutdown();
+  }
+}
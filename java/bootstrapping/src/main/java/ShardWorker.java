@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/*
+  Extracts patterns and instances from one index shard (see LuceneIndexer)
+  for a ShardCoordinator. The worker serves one coordinator connection at
+  a time and stops after a QUIT request. Requests and responses are:
+
+    EXTRACT_PATTERNS (int), seeds (see Checkpoint.writeInstances)
+      -> pattern statistics (see PatternStatisticsTable.writeCheckpoint)
+    EXTRACT_INSTANCES (int), patterns (see Checkpoint.writeStrings)
+      -> instance statistics (see InstanceStatisticsTable.write)
+    QUIT (int)
+
+  The extractions are aggregated while they are extracted (see
+  setConcurrentStatistics of the steps), so that only the statistics of
+  the shard are sent. The evidence doc ids of the instances are the ones
+  of the shard; the coordinator assigns them to the shard.
+ */
+public final class ShardWorker {
+
+  static final int EXTRACT_PATTERNS = 0;
+  static final int EXTRACT_INSTANCES = 1;
+  static final int QUIT = 2;
+
+  private static Logger logger = LogManager.getLogger(ShardWorker.class);
+
+  private LuceneQueryFramework queryFramework;
+  private ExecutorService executor;
+  private int port;
+  private boolean seedBatched = false;
+  private boolean sentenceMajor = false;
+
+  public ShardWorker(final String pathLuceneIndex, final int port) {
+    this.port = port;
+    queryFramework = new LuceneQueryFramework(pathLuceneIndex);
+    executor = Executors.newFixedThreadPool(Main.MAX_THREADS);
+  }
+
+  /*
+    See PatternExtractionStep.setSeedBatched.
+   */
+  public void setSeedBatched(final boolean seedBatched) {
+    this.seedBatched = seedBatched;
+  }
+
+  /*
+    See InstanceExtractionStep.setSentenceMajor.
+   */
+  public void setSentenceMajor(final boolean sentenceMajor) {
+    this.sentenceMajor = sentenceMajor;
+  }
+
+  public void serve() throws IOException {
+    try (ServerSocket serverSocket = new ServerSocket(port)) {
+      logger.info("Waiting for the coordinator on port " + port);
+      boolean quit = false;
+      while (!quit) {
+        try (Socket socket = serverSocket.accept()) {
+          logger.info("Serving " + socket.getRemoteSocketAddress());
+          quit = serve(socket);
+        }
+      }
+    } finally {
+      executor.shutdown();
+      queryFramework.close();
+    }
+  }
+
+  /*
+    Serves the requests of a connection and returns whether the last one
+    was QUIT.
+   */
+  private boolean serve(final Socket socket) throws IOException {
+    DataInputStream in = new DataInputStream(
+            new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(socket.getOutputStream()));
+
+    while (true) {
+      int request;
+      try {
+        request = in.readInt();
+      } catch (EOFException e) {
+        logger.info("Coordinator disconnected");
+        return false;
+      }
+
+      if (request == EXTRACT_PATTERNS) {
+        LinkedList<Instance> seeds = new LinkedList<>();
+        Checkpoint.readInstances(in, seeds);
+        // a new step, so that no seed is skipped as already queried
+        PatternExtractionStep step =
+                new PatternExtractionStep(seeds, queryFramework, executor);
+        step.setSeedBatched(seedBatched);
+        step.setConcurrentStatistics(true);
+        step.extract();
+        step.getStatistics().writeCheckpoint(out);
+      } else if (request == EXTRACT_INSTANCES) {
+        LinkedList<String> strings = new LinkedList<>();
+        Checkpoint.readStrings(in, strings);
+        LinkedList<PathPattern> patterns = new LinkedList<>();
+        strings.forEach(s -> patterns.add(new PathPattern(s)));
+        InstanceExtractionStep step =
+                new InstanceExtractionStep(queryFramework, executor);
+        step.setSentenceMajor(sentenceMajor);
+        step.setConcurrentStatistics(true);
+        step.extract(patterns);
+        step.getStatistics().write(out, patterns);
+      } else if (request == QUIT) {
+        return true;
+      } else {
+        throw new IOException("Unknown request " + request);
+      }
+      out.flush();
+      queryFramework.logCacheStatistics();
+    }
+  }
+}
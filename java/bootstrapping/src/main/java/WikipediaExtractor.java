@@ -24,10 +24,21 @@
  *
  */
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -36,6 +47,10 @@ public final class WikipediaExtractor {
 
   private static Logger logger = LogManager.getLogger(WikipediaExtractor.class);
 
+  // prefix of comma-separated ShardWorker addresses given instead of the
+  // path of the Lucene index
+  public static final String SHARDS_PREFIX = "shards:";
+
   private String pathOutput;
 
   private PatternExtractionStep patternExtractionStep;
@@ -43,43 +58,143 @@ public final class WikipediaExtractor {
   private PatternSelector patternSelector;
   private InstanceSelector instanceSelector;
 
+  private LuceneQueryFramework queryFramework;
+  private ShardCoordinator shards;
+  // shared by the extraction steps
+  private ExecutorService executor;
+
   private LinkedList<Instance> instances;
+  private InstanceTable<Instance> knownInstances = new InstanceTable<>();
   private LinkedList<PathPattern> patterns;
+  private HashSet<String> knownPatterns = new HashSet<>();
+  private HashMap<String, LinkedList<PathPattern>> patternsByCanonicalKey =
+          new HashMap<>();
 
   private int previousSizeInstances = 0;
   private int previousSizePattern = 0;
 
+  // last completed iteration and phase if resumed from a checkpoint
+  private int resumedIteration = 0;
+  private int resumedPhase = Checkpoint.INSTANCE_PHASE;
+
   public WikipediaExtractor(final String pathLuceneIndex,
                             final String pathSeeds,
                             final String pathOutput) {
     this.pathOutput = pathOutput;
     instances = SeedLoader.load(pathSeeds);
+    for (Instance seed : instances) {
+      knownInstances.putIfAbsent(seed.getKey(), seed);
+    }
 
-    logger.info("Loading Lucene index for fast search");
-    LuceneQueryFramework queryFramework =
-            new LuceneQueryFramework(pathLuceneIndex);
-    logger.info("Loading Lucene index done");
+    if (pathLuceneIndex.startsWith(SHARDS_PREFIX)) {
+      try {
+        shards = new ShardCoordinator(Arrays.asList(pathLuceneIndex
+                .substring(SHARDS_PREFIX.length()).split(",")));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    } else {
+      logger.info("Loading Lucene index for fast search");
+      queryFramework = new LuceneQueryFramework(pathLuceneIndex);
+      logger.info("Loading Lucene index done");
+    }
+
+    executor = Executors.newFixedThreadPool(Main.MAX_THREADS);
 
     patternExtractionStep = new PatternExtractionStep(
-            instances, queryFramework);
+            instances, queryFramework, executor);
     patternSelector = new PatternSelector();
 
-    instanceExtractionStep = new InstanceExtractionStep(queryFramework);
+    instanceExtractionStep = new InstanceExtractionStep(
+            queryFramework, executor);
     instanceSelector = new InstanceSelector();
 
+    if (shards != null) {
+      patternExtractionStep.setShards(shards);
+      instanceExtractionStep.setShards(shards);
+    }
+
     patterns = new LinkedList<>();
   }
 
+  /*
+    See InstanceExtractionStep.setSentenceMajor.
+   */
+  public void setSentenceMajorMatching(final boolean sentenceMajor) {
+    instanceExtractionStep.setSentenceMajor(sentenceMajor);
+  }
+
+  /*
+    See PatternExtractionStep.setSeedBatched.
+   */
+  public void setSeedBatchedExtraction(final boolean seedBatched) {
+    patternExtractionStep.setSeedBatched(seedBatched);
+  }
+
+  /*
+    See PatternExtractionStep.setConcurrentStatistics and
+    InstanceExtractionStep.setConcurrentStatistics.
+   */
+  public void setConcurrentStatistics(final boolean concurrentStatistics) {
+    patternExtractionStep.setConcurrentStatistics(concurrentStatistics);
+    instanceExtractionStep.setConcurrentStatistics(concurrentStatistics);
+  }
+
+  /*
+    Restores the state of the checkpoint in the output directory, if there
+    is one, so that bootstrapping continues after its phase. The modes must
+    be set before. Returns whether a checkpoint was restored.
+   */
+  public boolean resume() throws IOException {
+    Path path = Checkpoint.path(pathOutput);
+    if (!Files.exists(path)) {
+      logger.info("No checkpoint to resume from at " + path);
+      return false;
+    }
+
+    int[] checkpoint = Checkpoint.read(path, this::readCheckpoint);
+    resumedIteration = checkpoint[0];
+    resumedPhase = checkpoint[1];
+    logger.info("Resuming after iteration " + resumedIteration + ", "
+            + (resumedPhase == Checkpoint.PATTERN_PHASE
+            ? "pattern" : "instance") + " phase");
+    return true;
+  }
+
   public void bootstrapping() {
-    save(0);
-    for (int i = 1; true; i++) {
-      logger.info("----- Iteration: " + i + " -----");
-      previousSizeInstances = instances.size();
-      previousSizePattern = patterns.size();
+    // also on failures, e.g., of a shard, so that no thread keeps the JVM
+    // running
+    try {
+      iterate();
+    } finally {
+      executor.shutdown();
+      if (shards != null) {
+        shards.close();
+      } else {
+        queryFramework.close();
+      }
+    }
+    logger.info("Done");
+  }
 
-      LinkedList<PathPattern> iterationPattern = patternExtraction();
-      mergePatterns(patterns, iterationPattern);
-      patternSelector.clear();
+  private void iterate() {
+    if (resumedIteration == 0) {
+      save(0);
+    }
+    int first = resumedPhase == Checkpoint.PATTERN_PHASE
+            ? resumedIteration
+            : resumedIteration + 1;
+    for (int i = first; true; i++) {
+      if (i > resumedIteration) {
+        logger.info("----- Iteration: " + i + " -----");
+        previousSizeInstances = instances.size();
+        previousSizePattern = patterns.size();
+
+        LinkedList<PathPattern> iterationPattern = patternExtraction();
+        mergePatterns(patterns, iterationPattern);
+        patternSelector.clear();
+        checkpoint(i, Checkpoint.PATTERN_PHASE);
+      }
 
       if (i == Main.NUM_ITERATIONS) {
         break;
@@ -89,10 +204,62 @@ public final class WikipediaExtractor {
       instanceSelector.clear();
 
       save(i);
+      checkpoint(i, Checkpoint.INSTANCE_PHASE);
+      if (queryFramework != null) {
+        queryFramework.logCacheStatistics();
+      }
     }
-    patternExtractionStep.finish();
-    instanceExtractionStep.finish();
-    logger.info("Done");
+  }
+
+  private void checkpoint(final int iteration, final int phase) {
+    try {
+      Checkpoint.write(Checkpoint.path(pathOutput), iteration, phase,
+              this::writeCheckpoint);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void writeCheckpoint(final DataOutput out) throws IOException {
+    Checkpoint.writeInstances(out, instances);
+    out.writeInt(patterns.size());
+    for (PathPattern p : patterns) {
+      out.writeUTF(p.getPattern());
+    }
+    out.writeInt(previousSizeInstances);
+    out.writeInt(previousSizePattern);
+
+    patternExtractionStep.writeCheckpoint(out);
+    patternSelector.writeCheckpoint(out);
+    instanceExtractionStep.writeCheckpoint(out);
+    instanceSelector.writeCheckpoint(out);
+  }
+
+  private void readCheckpoint(final DataInput in) throws IOException {
+    // the seeds of the pattern extraction step are the instances
+    instances.clear();
+    knownInstances.clear();
+    Checkpoint.readInstances(in, instances);
+    for (Instance instance : instances) {
+      knownInstances.putIfAbsent(instance.getKey(), instance);
+    }
+
+    patterns.clear();
+    knownPatterns.clear();
+    patternsByCanonicalKey.clear();
+    LinkedList<PathPattern> loadedPatterns = new LinkedList<>();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      loadedPatterns.add(new PathPattern(in.readUTF()));
+    }
+    mergePatterns(patterns, loadedPatterns);
+    previousSizeInstances = in.readInt();
+    previousSizePattern = in.readInt();
+
+    patternExtractionStep.readCheckpoint(in);
+    patternSelector.readCheckpoint(in);
+    instanceExtractionStep.readCheckpoint(in);
+    instanceSelector.readCheckpoint(in);
   }
 
   private void save(final int iteration) {
@@ -102,47 +269,54 @@ public final class WikipediaExtractor {
 
   public LinkedList<PathPattern> patternExtraction() {
     patternExtractionStep.extract();
-    patternSelector.select(patternExtractionStep.getPatterns());
+    if (patternExtractionStep.getStatistics() != null) {
+      patternSelector.select(patternExtractionStep.getStatistics());
+    } else {
+      patternSelector.select(patternExtractionStep.getPatterns());
+    }
     return patternSelector.getSelectedPatterns();
   }
 
   private LinkedList<Instance> instanceExtraction(
           final LinkedList<PathPattern> pattern) {
     instanceExtractionStep.extract(pattern);
-    instanceSelector.select(instanceExtractionStep.getInstances());
+    if (instanceExtractionStep.getStatistics() != null) {
+      instanceSelector.select(instanceExtractionStep.getStatistics());
+    } else {
+      instanceSelector.select(instanceExtractionStep.getInstances());
+    }
     return instanceSelector.getSelectedInstances();
   }
 
   private void mergePatterns(final LinkedList<PathPattern> pattern,
                              final LinkedList<PathPattern> iterationPattern) {
     for (PathPattern i : iterationPattern) {
+      if (knownPatterns.contains(i.getPattern())) {
+        continue;
+      }
+
+      // only patterns with the same canonical key can be reverses
+      LinkedList<PathPattern> candidates = patternsByCanonicalKey
+              .computeIfAbsent(i.getCanonicalKey(), k -> new LinkedList<>());
       boolean duplicate = false;
-      for (PathPattern p : pattern) {
-        if (p.getPattern().equals(i.getPattern())) {
-          duplicate = true;
-        }
+      for (PathPattern p : candidates) {
         if (i.isReverseOf(p)) {
           duplicate = true;
+          break;
         }
       }
 
       if (!duplicate) {
         pattern.add(i);
+        knownPatterns.add(i.getPattern());
+        candidates.add(i);
       }
     }
   }
 
   private void mergeInstances(final LinkedList<Instance> newInstances) {
     for (Instance i : newInstances) {
-      boolean duplicate = false;
-
-      for (Instance p : instances) {
-        if (i.equals(p)) {
-          duplicate = true;
-        }
-      }
-
-      if (!duplicate) {
+      if (knownInstances.putIfAbsent(i.getKey(), i) == null) {
         instances.add(i);
       }
     }
@@ -0,0 +1,248 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/*
+  Parses many WARC files inside one JVM. The input is either a directory,
+  which is searched recursively for WARC files, or a manifest with one path
+  per line. Files are processed concurrently by a shared ClueWebParser, so
+  stop words, patterns and the CoreNLP models are only loaded once.
+
+  Finished files are appended to the done-list <output>.done and skipped
+  when the parser is restarted. Causal sentences of files that were in
+  progress during a crash are extracted again after the restart.
+
+  If recordsPerShard is set, compressed files are split into shards of
+  that many records via their WarcOffsetIndex, such that a single large
+  file is processed by several threads. Shards are recorded in the
+  done-list as <file>@<start>-<end>, so a restart only repeats the shards
+  that were in progress. The offset indexes are loaded or built by the
+  pool threads, which then submit the shards of the file.
+ */
+public final class ClueWebCorpusParser {
+
+  public static final int N_FILE_THREADS = 4;
+  private static final String DONE_LIST_SUFFIX = ".done";
+
+  private static Logger logger =
+          LogManager.getLogger(ClueWebCorpusParser.class);
+
+  private ClueWebParser parser;
+  private PrintWriter doneList;
+  // read by the pool threads while others mark files as done
+  private Set<String> doneFiles;
+  private int nFileThreads;
+  private int recordsPerShard = 0;
+  // submitted tasks that are not finished yet
+  private int pendingTasks = 0;
+
+  public ClueWebCorpusParser(final String pathPatterns,
+                             final String pathStopWordList,
+                             final String pathOutput,
+                             final int nFileThreads) {
+    this.nFileThreads = nFileThreads;
+    parser = new ClueWebParser(
+            pathPatterns, pathStopWordList, pathOutput, true);
+    parser.setExtractionThreads(Math.max(1,
+            ClueWebParser.N_EXTRACTION_THREADS / nFileThreads));
+
+    String pathDoneList = pathOutput + DONE_LIST_SUFFIX;
+    doneFiles = loadDoneList(pathDoneList);
+    try {
+      doneList = new PrintWriter(new FileOutputStream(pathDoneList, true));
+    } catch (FileNotFoundException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void setRecordsPerShard(final int recordsPerShard) {
+    this.recordsPerShard = recordsPerShard;
+  }
+
+  /*
+    The near-duplicate index is shared by all files of the corpus.
+   */
+  public void setNearDuplicateIndexSize(final int nPages) {
+    parser.setNearDuplicateIndexSize(nPages);
+  }
+
+  public void parse(final String pathInput) {
+    LinkedList<String> files = listFiles(pathInput);
+    files.removeIf(doneFiles::contains);
+    logger.info("Files to process: " + files.size()
+            + " (already done: " + doneFiles.size() + ")");
+
+    ExecutorService executor = Executors.newFixedThreadPool(nFileThreads);
+    // tasks submit further tasks, so the executor cannot be shut down
+    // before all tasks are done
+    for (String file : files) {
+      if (recordsPerShard > 0 && file.endsWith(".gz")) {
+        submit(executor, () -> submitShards(executor, file));
+        continue;
+      }
+      submit(executor, () -> {
+        if (parser.process(file)) {
+          markDone(file);
+        }
+      });
+    }
+
+    try {
+      awaitTasks();
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    }
+    executor.shutdown();
+    parser.finish();
+    doneList.close();
+  }
+
+  private void submit(final ExecutorService executor, final Runnable task) {
+    synchronized (this) {
+      pendingTasks++;
+    }
+    executor.submit(() -> {
+      try {
+        task.run();
+      } finally {
+        taskDone();
+      }
+    });
+  }
+
+  private synchronized void taskDone() {
+    pendingTasks--;
+    if (pendingTasks == 0) {
+      notifyAll();
+    }
+  }
+
+  private synchronized void awaitTasks() throws InterruptedException {
+    while (pendingTasks > 0) {
+      wait();
+    }
+  }
+
+  private void submitShards(final ExecutorService executor,
+                            final String file) {
+    LinkedList<long[]> shards;
+    try {
+      shards = WarcOffsetIndex.loadOrBuild(file).split(recordsPerShard);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return;
+    }
+
+    for (long[] shard : shards) {
+      String key = file + "@" + shard[0] + "-" + shard[1];
+      if (doneFiles.contains(key)) {
+        continue;
+      }
+      submit(executor, () -> {
+        if (parser.process(file, shard[0], shard[1])) {
+          markDone(key);
+        }
+      });
+    }
+  }
+
+  /*
+    The output is flushed before a file is marked as done, such that the
+    done-list never gets ahead of the extracted sentences.
+   */
+  private synchronized void markDone(final String file) {
+    parser.flush();
+    doneList.println(file);
+    doneList.flush();
+    doneFiles.add(file);
+    logger.info("Done: " + doneFiles.size() + " files");
+  }
+
+  private LinkedList<String> listFiles(final String pathInput) {
+    LinkedList<String> files = new LinkedList<>();
+    if (new File(pathInput).isDirectory()) {
+      try (Stream<Path> paths = Files.walk(Paths.get(pathInput))) {
+        paths.map(Path::toString)
+                .filter(ClueWebCorpusParser::isWarcFile)
+                .sorted()
+                .forEach(files::add);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    } else {
+      files.addAll(readLines(pathInput));
+    }
+    return files;
+  }
+
+  private static boolean isWarcFile(final String path) {
+    return path.endsWith(".warc") || path.endsWith(".warc.gz");
+  }
+
+  private static Set<String> loadDoneList(final String pathDoneList) {
+    Set<String> done = ConcurrentHashMap.newKeySet();
+    if (new File(pathDoneList).exists()) {
+      done.addAll(readLines(pathDoneList));
+    }
+    return done;
+  }
+
+  private static LinkedList<String> readLines(final String path) {
+    LinkedList<String> lines = new LinkedList<>();
+    try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+      String line;
+      while ((line = br.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        lines.add(line);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return lines;
+  }
+}
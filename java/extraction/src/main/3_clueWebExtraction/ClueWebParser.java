@@ -24,62 +24,142 @@
  *
  */
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.ZipException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jwat.warc.WarcReader;
-import org.jwat.warc.WarcReaderFactory;
-import org.jwat.warc.WarcRecord;
 
 public final class ClueWebParser {
 
-  private static final int N_EXTRACTION_THREADS = 16;
+  static final int N_EXTRACTION_THREADS = 16;
+  private static final int PAGE_QUEUE_SIZE = 64;
+  private static final int MIN_SHINGLES = 8;
   private static Logger logger = LogManager.getLogger(Main.class);
   private PrintWriter printWriter;
   private PotthastJerichoExtractor textExtractor;
   private String pathPatterns;
+  private int nExtractionThreads = N_EXTRACTION_THREADS;
+  private int maxPayloadBytes = HttpPayloadDecoder.DEFAULT_MAX_PAYLOAD_BYTES;
+  private boolean truncateOversizedPayloads = true;
+  private boolean sniffLanguage = false;
+  private NearDuplicateIndex nearDuplicates =
+          new NearDuplicateIndex(NearDuplicateIndex.DEFAULT_CAPACITY);
 
   public ClueWebParser(final String pathPatterns,
                        final String pathStopWordList,
                        final String pathOutput) {
+    this(pathPatterns, pathStopWordList, pathOutput, false);
+  }
+
+  public ClueWebParser(final String pathPatterns,
+                       final String pathStopWordList,
+                       final String pathOutput,
+                       final boolean append) {
     this.pathPatterns = pathPatterns;
     textExtractor = new PotthastJerichoExtractor(pathStopWordList);
     try {
-      printWriter = new PrintWriter(new FileOutputStream(pathOutput));
+      printWriter = new PrintWriter(
+              new FileOutputStream(pathOutput, append));
     } catch (FileNotFoundException e) {
       e.printStackTrace();
     }
   }
 
+  public void setExtractionThreads(final int nExtractionThreads) {
+    this.nExtractionThreads = nExtractionThreads;
+  }
+
+  /*
+    Payloads larger than maxPayloadBytes are truncated, or skipped if
+    truncateOversizedPayloads is false.
+   */
+  public void setMaxPayloadBytes(final int maxPayloadBytes,
+                                 final boolean truncateOversizedPayloads) {
+    this.maxPayloadBytes = maxPayloadBytes;
+    this.truncateOversizedPayloads = truncateOversizedPayloads;
+  }
+
+  /*
+    Enables a quick check of the first KB of each page for English
+    function words before the page is rendered.
+   */
+  public void setLanguageSniffing(final boolean sniffLanguage) {
+    this.sniffLanguage = sniffLanguage;
+  }
+
+  /*
+    Pages that are near-duplicates of one of the last nPages pages are
+    skipped before their sentences are parsed. 0 disables the detection.
+   */
+  public void setNearDuplicateIndexSize(final int nPages) {
+    nearDuplicates = nPages > 0 ? new NearDuplicateIndex(nPages) : null;
+  }
+
   public void parse(final String path) {
+    process(path);
+    finish();
+  }
+
+  /*
+    Extracts all causal sentences of one WARC file. Can be called
+    concurrently for different files, the output is shared.
+   */
+  public boolean process(final String path) {
+    return process(path, 0, -1);
+  }
+
+  /*
+    Extracts the causal sentences of the byte range [start, end) of a
+    compressed WARC file, see WarcOffsetIndex. An end of -1 reads until
+    the end of the file.
+   */
+  public boolean process(final String path,
+                         final long start,
+                         final long end) {
     try {
-      read(path);
+      read(path, start, end);
     } catch (IOException e) {
       e.printStackTrace();
+      return false;
     }
+    return true;
+  }
 
+  public void flush() {
+    printWriter.flush();
+  }
+
+  public void finish() {
     printWriter.flush();
     printWriter.close();
   }
 
-  private void extractText(final String warcRecordIdUri,
-                           final String warcTargetUriStr,
-                           final String warcDate,
-                           final String html) {
-    List<String> sentences = textExtractor.extract(html);
+  /*
+    Pages with too few words for a meaningful fingerprint are never
+    considered near-duplicates.
+   */
+  private boolean isNearDuplicate(final List<String> sentences) {
+    if (nearDuplicates == null) {
+      return false;
+    }
+    SimHash simHash = new SimHash();
+    for (String sentence : sentences) {
+      simHash.add(sentence);
+    }
+    return simHash.getShingleCount() >= MIN_SHINGLES
+            && nearDuplicates.containsOrAdd(simHash.getFingerprint());
+  }
+
+  private void extractText(final ClueWebPage page) {
+    List<String> sentences = textExtractor.extract(page.getHtml());
 
     if (sentences == null || sentences.isEmpty()) {
       return;
@@ -90,18 +170,22 @@ public final class ClueWebParser {
       return;
     }
 
+    if (isNearDuplicate(sentences)) {
+      return;
+    }
+
     LinkedList<ClueWebSentence> clueWebSentences = new LinkedList<>();
     for (String sentenceSurface : sentences) {
       clueWebSentences.add(new ClueWebSentence(
-              warcRecordIdUri,
-              warcTargetUriStr,
-              warcDate,
+              page.getWarcRecordIdUri(),
+              page.getWarcTargetUriStr(),
+              page.getWarcDate(),
               sentenceSurface
       ));
     }
 
     MainExtractor extractor = new MainExtractor(
-            pathPatterns, N_EXTRACTION_THREADS);
+            pathPatterns, nExtractionThreads);
     extractor.parse(clueWebSentences);
 
     for (GeneralSentence sentence : extractor.getAllSentences()) {
@@ -113,34 +197,47 @@ public final class ClueWebParser {
     }
   }
 
-  private void read(final String path) throws IOException {
-    InputStream fileStream = new FileInputStream(path);
-    if (path.contains(".gz")) {
-      fileStream = new GZIPInputStream(fileStream);
-    }
-
-    WarcReader reader = WarcReaderFactory.getReader(fileStream);
-    WarcRecord record;
+  private void read(final String path,
+                    final long start,
+                    final long end) throws IOException {
+    BlockingQueue<ClueWebPage> pages =
+            new ArrayBlockingQueue<>(PAGE_QUEUE_SIZE);
+    ClueWebReader reader = new ClueWebReader(path, start, end, pages,
+            new HttpPayloadDecoder(maxPayloadBytes,
+                    truncateOversizedPayloads),
+            new HttpHeaderFilter(sniffLanguage));
+    reader.start();
 
     try {
-      while ((record = reader.getNextRecord()) != null) {
-        String warcRecordIdUri = record.header.warcRecordIdUri.toString();
-        String warcTargetUriStr = record.header.warcTargetUriStr;
-        String warcDate = record.header.warcDateStr;
-
-        if (record.hasPayload()
-                && record.header.contentType.mediaType.equals("http")) {
-          InputStream inputStream = record.getPayload().getInputStream();
-          StringWriter writer = new StringWriter();
-          IOUtils.copy(inputStream, writer, "UTF-8");
-          String html = writer.toString();
-          extractText(warcRecordIdUri, warcTargetUriStr, warcDate, html);
-        }
+      ClueWebPage page;
+      while ((page = pages.take()) != ClueWebReader.END_OF_FILE) {
+        extractText(page);
       }
-    } catch (ZipException e) {
-      logger.info("Zip Exception, skip file " + path);
+      reader.join();
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    } finally {
+      // stop the reader if the extraction did not finish regularly
+      reader.interrupt();
+    }
+
+    Throwable exception = reader.getException();
+    if (exception instanceof IOException) {
+      throw (IOException) exception;
+    } else if (exception instanceof RuntimeException) {
+      throw (RuntimeException) exception;
+    } else if (exception instanceof Error) {
+      throw (Error) exception;
     }
 
-    logger.info("Finished " + path);
+    logger.info("Finished " + path + (start > 0 || end >= 0
+            ? " [" + start + ", " + end + ")"
+            : ""));
+    if (nearDuplicates != null) {
+      logger.info(String.format(
+              "Skipped %d of %d pages as near-duplicates (%.2f%%)",
+              nearDuplicates.getDuplicates(), nearDuplicates.getPages(),
+              100 * nearDuplicates.getDuplicateRatio()));
+    }
   }
 }
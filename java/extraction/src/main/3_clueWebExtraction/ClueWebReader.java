@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jwat.warc.WarcReader;
+import org.jwat.warc.WarcReaderFactory;
+import org.jwat.warc.WarcRecord;
+
+/*
+  Reader stage of the ClueWeb pipeline: decompresses the WARC file and puts
+  the HTTP payloads into a bounded queue, such that I/O and decompression
+  overlap with the extraction of the previous pages. The end of the file is
+  signalled by END_OF_FILE.
+
+  For compressed files, reading can be restricted to the byte range
+  [start, end) of gzip members given by a WarcOffsetIndex.
+ */
+public final class ClueWebReader extends Thread {
+
+  public static final ClueWebPage END_OF_FILE =
+          new ClueWebPage(null, null, null, null);
+
+  private static Logger logger = LogManager.getLogger(ClueWebReader.class);
+
+  private final String path;
+  private final BlockingQueue<ClueWebPage> pages;
+  private final HttpPayloadDecoder decoder;
+  private final HttpHeaderFilter filter;
+  private final long start;
+  private final long end;
+  private Throwable exception;
+  private int oversizedPayloads = 0;
+
+  public ClueWebReader(final String path,
+                       final long start,
+                       final long end,
+                       final BlockingQueue<ClueWebPage> pages,
+                       final HttpPayloadDecoder decoder,
+                       final HttpHeaderFilter filter) {
+    super("ClueWebReader-" + path + "@" + start);
+    this.path = path;
+    this.start = start;
+    this.end = end;
+    this.pages = pages;
+    this.decoder = decoder;
+    this.filter = filter;
+  }
+
+  @Override
+  public void run() {
+    try {
+      read();
+    } catch (InterruptedException e) {
+      // the consumer stopped, nobody waits for the end of the file
+      logger.info("Reading interrupted, skip rest of file " + path);
+      return;
+    } catch (Throwable e) {
+      // e.g., malformed records, rethrown by the consumer
+      exception = e;
+    }
+
+    try {
+      pages.put(END_OF_FILE);
+    } catch (InterruptedException e) {
+      logger.info("Reading interrupted " + path);
+    }
+  }
+
+  private void read() throws IOException, InterruptedException {
+    try (InputStream fileStream = open()) {
+      WarcReader reader = WarcReaderFactory.getReader(fileStream);
+      WarcRecord record;
+
+      try {
+        while ((record = reader.getNextRecord()) != null) {
+          String warcRecordIdUri = record.header.warcRecordIdUri.toString();
+          String warcTargetUriStr = record.header.warcTargetUriStr;
+          String warcDate = record.header.warcDateStr;
+
+          if (record.hasPayload()
+                  && record.header.contentType.mediaType.equals("http")) {
+            InputStream inputStream = record.getPayload().getInputStream();
+            String html = decode(inputStream);
+            if (html == null) {
+              continue;
+            }
+            pages.put(new ClueWebPage(warcRecordIdUri, warcTargetUriStr,
+                    warcDate, html));
+          }
+        }
+      } catch (ZipException e) {
+        logger.info("Zip Exception, skip file " + path);
+      }
+    }
+
+    filter.logStatistics(path);
+    if (oversizedPayloads > 0) {
+      logger.info("Skipped " + oversizedPayloads
+              + " oversized payloads in " + path);
+    }
+  }
+
+  private String decode(final InputStream payload) throws IOException {
+    if (!decoder.readHeader(payload) || !filter.accept(decoder)) {
+      return null;
+    }
+    if (!decoder.readBody(payload)) {
+      oversizedPayloads++;
+      return null;
+    }
+    return decoder.decodeBody();
+  }
+
+  private InputStream open() throws IOException {
+    FileInputStream file = new FileInputStream(path);
+    InputStream fileStream = file;
+    if (start > 0) {
+      file.getChannel().position(start);
+    }
+    if (end >= 0) {
+      fileStream = new RangeInputStream(fileStream, end - start);
+    }
+    if (path.contains(".gz")) {
+      fileStream = new GZIPInputStream(fileStream);
+    }
+    return fileStream;
+  }
+
+  /*
+    Exception or error that terminated the reading, null if the file was
+    read completely.
+   */
+  public Throwable getException() {
+    return exception;
+  }
+
+  private static final class RangeInputStream extends FilterInputStream {
+
+    private long remaining;
+
+    RangeInputStream(final InputStream in, final long length) {
+      super(in);
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int b = super.read();
+      if (b >= 0) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+            throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int n = super.read(b, off, (int) Math.min(len, remaining));
+      if (n > 0) {
+        remaining -= n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+      long skipped = super.skip(Math.min(n, remaining));
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(super.available(), remaining);
+    }
+  }
+}
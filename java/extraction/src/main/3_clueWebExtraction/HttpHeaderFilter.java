@@ -0,0 +1,181 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/*
+  Rejects HTTP responses that cannot yield English sentences before their
+  body is read and rendered: responses with a non-2xx status code (e.g.,
+  redirects or 404), non-HTML content types (e.g., images or PDFs) and a
+  Content-Language that does not include English.
+
+  Optionally, the first KB of the body is sniffed for English function
+  words. The sniffing is deliberately conservative and only rejects pages
+  that are mostly non-ASCII or contain many words but no function word.
+ */
+public final class HttpHeaderFilter {
+
+  private static Logger logger = LogManager.getLogger(HttpHeaderFilter.class);
+
+  private static final int SNIFF_BYTES = 1024;
+  private static final int SNIFF_MIN_WORDS = 20;
+  private static final double SNIFF_MAX_NON_ASCII_RATIO = 0.3;
+
+  private static final HashSet<String> HTML_MEDIA_TYPES = new HashSet<>(
+          Arrays.asList("text/html", "application/xhtml+xml"));
+
+  private static final HashSet<String> ENGLISH_FUNCTION_WORDS = new HashSet<>(
+          Arrays.asList("the", "and", "of", "to", "in", "is", "for", "that",
+                  "with", "on", "are", "was", "it", "this", "by", "be", "as",
+                  "or", "from", "at", "an", "have", "you", "not", "we"));
+
+  private final boolean sniffLanguage;
+
+  private int accepted = 0;
+  private int rejectedStatus = 0;
+  private int rejectedContentType = 0;
+  private int rejectedLanguage = 0;
+  private int rejectedSniffing = 0;
+
+  public HttpHeaderFilter(final boolean sniffLanguage) {
+    this.sniffLanguage = sniffLanguage;
+  }
+
+  /*
+    Expects the header to be read by HttpPayloadDecoder.readHeader.
+    Payloads without HTTP header are accepted.
+   */
+  public boolean accept(final HttpPayloadDecoder decoder) {
+    int status = decoder.getStatusCode();
+    if (status >= 0 && (status < 200 || status >= 300)) {
+      rejectedStatus++;
+      return false;
+    }
+
+    String contentType = decoder.getHeader("content-type");
+    if (contentType != null && !isHtml(contentType)) {
+      rejectedContentType++;
+      return false;
+    }
+
+    String contentLanguage = decoder.getHeader("content-language");
+    if (contentLanguage != null && !isEnglish(contentLanguage)) {
+      rejectedLanguage++;
+      return false;
+    }
+
+    if (sniffLanguage && !looksEnglish(decoder.bodyPrefix(SNIFF_BYTES))) {
+      rejectedSniffing++;
+      return false;
+    }
+
+    accepted++;
+    return true;
+  }
+
+  private static boolean isHtml(final String contentType) {
+    int parameters = contentType.indexOf(';');
+    String mediaType = parameters < 0
+            ? contentType
+            : contentType.substring(0, parameters);
+    return HTML_MEDIA_TYPES.contains(
+            mediaType.trim().toLowerCase(Locale.ROOT));
+  }
+
+  /*
+    Parsing example:
+        Content-Language: de-DE, en-CA
+   */
+  private static boolean isEnglish(final String contentLanguage) {
+    for (String language : contentLanguage.split(",")) {
+      String tag = language.trim().toLowerCase(Locale.ROOT);
+      if (tag.isEmpty() || tag.equals("en") || tag.startsWith("en-")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean looksEnglish(final String prefix) {
+    int body = prefix.toLowerCase(Locale.ROOT).indexOf("<body");
+    String text = body < 0 ? prefix : prefix.substring(body);
+
+    int letters = 0;
+    int nonAscii = 0;
+    int words = 0;
+    int functionWords = 0;
+    boolean inTag = false;
+    StringBuilder word = new StringBuilder();
+
+    for (int i = 0; i <= text.length(); i++) {
+      char c = i < text.length() ? text.charAt(i) : ' ';
+      if (c == '<') {
+        inTag = true;
+      } else if (c == '>') {
+        inTag = false;
+        continue;
+      }
+      if (inTag) {
+        continue;
+      }
+
+      if (c >= 0x80) {
+        nonAscii++;
+      }
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+        letters++;
+        word.append(Character.toLowerCase(c));
+        continue;
+      }
+      if (word.length() > 0) {
+        words++;
+        if (ENGLISH_FUNCTION_WORDS.contains(word.toString())) {
+          functionWords++;
+        }
+        word.setLength(0);
+      }
+    }
+
+    if (letters + nonAscii > 0
+            && nonAscii > SNIFF_MAX_NON_ASCII_RATIO * (letters + nonAscii)) {
+      return false;
+    }
+    return words < SNIFF_MIN_WORDS || functionWords > 0;
+  }
+
+  public void logStatistics(final String path) {
+    logger.info("HTTP header filter " + path + ": accepted " + accepted
+            + ", rejected status " + rejectedStatus
+            + ", content type " + rejectedContentType
+            + ", content language " + rejectedLanguage
+            + ", language sniffing " + rejectedSniffing);
+  }
+}
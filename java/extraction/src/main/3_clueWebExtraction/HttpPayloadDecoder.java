@@ -0,0 +1,345 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+  Decodes the payload of a WARC "http" record. The HTTP header block is
+  parsed directly from the payload bytes and the body is decoded straight
+  from a reused byte buffer with the charset given by the Content-Type
+  header, the byte order mark or a <meta> charset declaration (UTF-8 if
+  none is given).
+
+  Payloads larger than maxPayloadBytes are either truncated or skipped.
+  A decoder is not thread-safe, each reader uses its own instance.
+ */
+public final class HttpPayloadDecoder {
+
+  public static final int DEFAULT_MAX_PAYLOAD_BYTES = 4 * 1024 * 1024;
+
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_HEADER_BYTES = 64 * 1024;
+  private static final int META_CHARSET_PRESCAN_BYTES = 1024;
+  private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+
+  private static ConcurrentHashMap<String, Charset> charsets =
+          new ConcurrentHashMap<>();
+
+  private final int maxPayloadBytes;
+  private final boolean truncateOversized;
+
+  private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+  private int length;
+  private int bodyStart;
+  private boolean endOfPayload;
+
+  private int statusCode;
+  private HashMap<String, String> headers = new HashMap<>();
+
+  public HttpPayloadDecoder(final int maxPayloadBytes,
+                            final boolean truncateOversized) {
+    this.maxPayloadBytes = maxPayloadBytes;
+    this.truncateOversized = truncateOversized;
+  }
+
+  /*
+    Reads the HTTP header block of the payload. Returns false if the
+    payload is empty.
+   */
+  public boolean readHeader(final InputStream payload) throws IOException {
+    length = 0;
+    bodyStart = 0;
+    statusCode = -1;
+    endOfPayload = false;
+    headers.clear();
+
+    int headerLimit = Math.min(maxPayloadBytes, MAX_HEADER_BYTES);
+    int headerEnd = -1;
+    while (headerEnd < 0 && !endOfPayload && length < headerLimit) {
+      int searchFrom = Math.max(0, length - 3);
+      fill(payload, headerLimit);
+      headerEnd = findHeaderEnd(searchFrom);
+    }
+
+    if (length == 0) {
+      return false;
+    }
+
+    if (headerEnd >= 0 && startsWith("HTTP/")) {
+      parseHeader(headerEnd);
+      bodyStart = buffer[headerEnd + 1] == '\n'
+              ? headerEnd + 2
+              : headerEnd + 3;
+    }
+    return true;
+  }
+
+  /*
+    Reads the rest of the payload. Returns false if the payload is larger
+    than maxPayloadBytes and oversized payloads are skipped.
+   */
+  public boolean readBody(final InputStream payload) throws IOException {
+    while (!endOfPayload && length < maxPayloadBytes) {
+      fill(payload, maxPayloadBytes);
+    }
+
+    if (!endOfPayload && payload.read() != -1) {
+      return truncateOversized;
+    }
+    return true;
+  }
+
+  public String decodeBody() {
+    int offset = bodyStart;
+    Charset charset = null;
+
+    if (hasPrefix(offset, 0xEF, 0xBB, 0xBF)) {
+      charset = StandardCharsets.UTF_8;
+      offset += 3;
+    } else if (hasPrefix(offset, 0xFE, 0xFF)) {
+      charset = StandardCharsets.UTF_16BE;
+      offset += 2;
+    } else if (hasPrefix(offset, 0xFF, 0xFE)) {
+      charset = StandardCharsets.UTF_16LE;
+      offset += 2;
+    }
+
+    if (charset == null) {
+      charset = lookup(charsetParameter(getHeader("content-type")));
+    }
+    if (charset == null) {
+      charset = lookup(metaCharset(offset));
+    }
+    if (charset == null) {
+      charset = DEFAULT_CHARSET;
+    }
+
+    return new String(buffer, offset, length - offset, charset);
+  }
+
+  /*
+    Returns the first bytes of the body that are already read, decoded as
+    ISO-8859-1, e.g., for a quick language check before decoding.
+   */
+  public String bodyPrefix(final int maxBytes) {
+    int end = Math.min(length, bodyStart + maxBytes);
+    return new String(buffer, bodyStart, end - bodyStart,
+            StandardCharsets.ISO_8859_1);
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  /*
+    Header names are case-insensitive and looked up in lower case.
+   */
+  public String getHeader(final String name) {
+    return headers.get(name);
+  }
+
+  private void fill(final InputStream payload, final int limit)
+          throws IOException {
+    if (length == buffer.length) {
+      buffer = Arrays.copyOf(buffer,
+              Math.min(Math.max(limit, 1), buffer.length * 2));
+    }
+    int n = payload.read(buffer, length, Math.min(buffer.length, limit)
+            - length);
+    if (n < 0) {
+      endOfPayload = true;
+    } else {
+      length += n;
+    }
+  }
+
+  /*
+    Returns the position of the last line break of the header block, which
+    is followed by an empty line.
+   */
+  private int findHeaderEnd(final int from) {
+    for (int i = from; i < length; i++) {
+      if (buffer[i] != '\n') {
+        continue;
+      }
+      if (i + 1 < length && buffer[i + 1] == '\n') {
+        return i;
+      }
+      if (i + 2 < length && buffer[i + 1] == '\r' && buffer[i + 2] == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /*
+    Parsing example:
+        HTTP/1.1 200 OK
+        Content-Type: text/html; charset=ISO-8859-1
+   */
+  private void parseHeader(final int headerEnd) {
+    int lineStart = 0;
+    boolean statusLine = true;
+    for (int i = 0; i <= headerEnd; i++) {
+      if (buffer[i] != '\n') {
+        continue;
+      }
+      int lineEnd = i > lineStart && buffer[i - 1] == '\r' ? i - 1 : i;
+      String line = new String(buffer, lineStart, lineEnd - lineStart,
+              StandardCharsets.ISO_8859_1);
+      if (statusLine) {
+        statusCode = parseStatusCode(line);
+        statusLine = false;
+      } else {
+        int colon = line.indexOf(':');
+        if (colon > 0) {
+          headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                  line.substring(colon + 1).trim());
+        }
+      }
+      lineStart = i + 1;
+    }
+  }
+
+  private static int parseStatusCode(final String statusLine) {
+    String[] x = statusLine.split(" ", 3);
+    if (x.length < 2) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(x[1].trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static String charsetParameter(final String contentType) {
+    if (contentType == null) {
+      return null;
+    }
+    int i = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+    if (i < 0) {
+      return null;
+    }
+    return trimCharsetValue(contentType.substring(i + "charset=".length()));
+  }
+
+  /*
+    Looks for charset declarations like <meta charset="utf-8"> or
+    <meta http-equiv="Content-Type" content="text/html; charset=utf-8">
+    within the first bytes of the body.
+   */
+  private String metaCharset(final int offset) {
+    int end = Math.min(length, offset + META_CHARSET_PRESCAN_BYTES);
+    String prescan = new String(buffer, offset, end - offset,
+            StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+
+    int meta = prescan.indexOf("<meta");
+    while (meta >= 0) {
+      int tagEnd = prescan.indexOf('>', meta);
+      if (tagEnd < 0) {
+        tagEnd = prescan.length();
+      }
+      int charset = prescan.indexOf("charset=", meta);
+      if (charset >= 0 && charset < tagEnd) {
+        return trimCharsetValue(
+                prescan.substring(charset + "charset=".length(), tagEnd));
+      }
+      meta = prescan.indexOf("<meta", tagEnd);
+    }
+    return null;
+  }
+
+  private static String trimCharsetValue(final String value) {
+    int start = 0;
+    while (start < value.length()
+            && (value.charAt(start) == '"' || value.charAt(start) == '\'')) {
+      start++;
+    }
+    int end = start;
+    while (end < value.length() && "\"'; />".indexOf(value.charAt(end)) < 0) {
+      end++;
+    }
+    return value.substring(start, end);
+  }
+
+  private static Charset lookup(final String name) {
+    if (name == null || name.isEmpty()) {
+      return null;
+    }
+    String key = name.toLowerCase(Locale.ROOT);
+    Charset charset = charsets.get(key);
+    if (charset != null) {
+      return charset;
+    }
+
+    // browsers decode Latin-1 pages as windows-1252
+    String canonical = key.equals("iso-8859-1") || key.equals("latin1")
+            ? "windows-1252" : key;
+    try {
+      if (!Charset.isSupported(canonical)) {
+        return null;
+      }
+      charset = Charset.forName(canonical);
+    } catch (IllegalCharsetNameException e) {
+      return null;
+    }
+    charsets.put(key, charset);
+    return charset;
+  }
+
+  private boolean startsWith(final String prefix) {
+    if (length < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (buffer[i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean hasPrefix(final int offset, final int... bytes) {
+    if (length - offset < bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if ((buffer[offset + i] & 0xFF) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
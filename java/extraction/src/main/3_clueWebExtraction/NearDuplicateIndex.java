@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+  In-memory LSH index of the SimHash fingerprints of the most recently
+  processed pages. Each fingerprint is split into four bands of 16 bits;
+  fingerprints within a Hamming distance of 3 agree on at least one band,
+  so only the fingerprints in the same bucket of one of the bands are
+  compared. When the index is full, the oldest fingerprint is evicted.
+
+  Thread-safe, shared by all files processed by one ClueWebParser.
+ */
+public final class NearDuplicateIndex {
+
+  static final int DEFAULT_CAPACITY = 100000;
+  static final int DEFAULT_MAX_DISTANCE = 3;
+
+  private static final int BANDS = 4;
+  private static final int BAND_BITS = Long.SIZE / BANDS;
+  private static final long BAND_MASK = (1L << BAND_BITS) - 1;
+
+  private final int maxDistance;
+  private final long[] fingerprints;
+  private final List<HashMap<Integer, List<Integer>>> buckets;
+  private int next = 0;
+  private int size = 0;
+
+  private long pages = 0;
+  private long duplicates = 0;
+
+  public NearDuplicateIndex(final int capacity) {
+    this(capacity, DEFAULT_MAX_DISTANCE);
+  }
+
+  public NearDuplicateIndex(final int capacity, final int maxDistance) {
+    if (maxDistance >= BANDS) {
+      throw new IllegalArgumentException(
+              "Max distance must be smaller than " + BANDS);
+    }
+    this.maxDistance = maxDistance;
+    this.fingerprints = new long[capacity];
+    this.buckets = new ArrayList<>(BANDS);
+    for (int band = 0; band < BANDS; band++) {
+      buckets.add(new HashMap<>());
+    }
+  }
+
+  /*
+    Returns true if a near-duplicate of the fingerprint is in the index,
+    otherwise adds the fingerprint and returns false.
+   */
+  public synchronized boolean containsOrAdd(final long fingerprint) {
+    pages++;
+    for (int band = 0; band < BANDS; band++) {
+      List<Integer> slots = buckets.get(band).get(band(fingerprint, band));
+      if (slots == null) {
+        continue;
+      }
+      for (int slot : slots) {
+        if (SimHash.distance(fingerprint, fingerprints[slot]) <= maxDistance) {
+          duplicates++;
+          return true;
+        }
+      }
+    }
+
+    if (size == fingerprints.length) {
+      removeBuckets(next);
+    } else {
+      size++;
+    }
+    fingerprints[next] = fingerprint;
+    for (int band = 0; band < BANDS; band++) {
+      buckets.get(band)
+              .computeIfAbsent(band(fingerprint, band), k -> new ArrayList<>(1))
+              .add(next);
+    }
+    next = (next + 1) % fingerprints.length;
+    return false;
+  }
+
+  private void removeBuckets(final int slot) {
+    long fingerprint = fingerprints[slot];
+    for (int band = 0; band < BANDS; band++) {
+      HashMap<Integer, List<Integer>> bandBuckets = buckets.get(band);
+      int key = band(fingerprint, band);
+      List<Integer> slots = bandBuckets.get(key);
+      slots.remove(Integer.valueOf(slot));
+      if (slots.isEmpty()) {
+        bandBuckets.remove(key);
+      }
+    }
+  }
+
+  private static int band(final long fingerprint, final int band) {
+    return (int) ((fingerprint >>> (band * BAND_BITS)) & BAND_MASK);
+  }
+
+  public synchronized long getPages() {
+    return pages;
+  }
+
+  public synchronized long getDuplicates() {
+    return duplicates;
+  }
+
+  public synchronized double getDuplicateRatio() {
+    return pages == 0 ? 0 : (double) duplicates / pages;
+  }
+
+}
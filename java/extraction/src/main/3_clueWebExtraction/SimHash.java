@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+/*
+  64-bit SimHash fingerprint of a page over the shingles of three
+  consecutive words of its sentences. Words are sequences of letters and
+  digits, compared ignoring case. Pages whose fingerprints differ in only
+  a few bits share most of their shingles.
+ */
+public final class SimHash {
+
+  private static final int SHINGLE_SIZE = 3;
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final int[] weights = new int[Long.SIZE];
+  private final long[] wordHashes = new long[SHINGLE_SIZE];
+  private int words = 0;
+  private int shingles = 0;
+
+  public void add(final CharSequence text) {
+    long wordHash = FNV_OFFSET_BASIS;
+    boolean inWord = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (Character.isLetterOrDigit(c)) {
+        wordHash = (wordHash ^ Character.toLowerCase(c)) * FNV_PRIME;
+        inWord = true;
+      } else if (inWord) {
+        addWord(wordHash);
+        wordHash = FNV_OFFSET_BASIS;
+        inWord = false;
+      }
+    }
+    if (inWord) {
+      addWord(wordHash);
+    }
+  }
+
+  private void addWord(final long wordHash) {
+    wordHashes[words % SHINGLE_SIZE] = wordHash;
+    words++;
+    if (words < SHINGLE_SIZE) {
+      return;
+    }
+
+    // combine the word hashes in order of occurrence
+    long shingleHash = FNV_OFFSET_BASIS;
+    for (int i = words - SHINGLE_SIZE; i < words; i++) {
+      shingleHash = (shingleHash ^ wordHashes[i % SHINGLE_SIZE]) * FNV_PRIME;
+    }
+    shingleHash = mix(shingleHash);
+
+    for (int bit = 0; bit < Long.SIZE; bit++) {
+      if ((shingleHash & (1L << bit)) != 0) {
+        weights[bit]++;
+      } else {
+        weights[bit]--;
+      }
+    }
+    shingles++;
+  }
+
+  public int getShingleCount() {
+    return shingles;
+  }
+
+  public long getFingerprint() {
+    long fingerprint = 0;
+    for (int bit = 0; bit < Long.SIZE; bit++) {
+      if (weights[bit] > 0) {
+        fingerprint |= 1L << bit;
+      }
+    }
+    return fingerprint;
+  }
+
+  public static int distance(final long fingerprint1,
+                             final long fingerprint2) {
+    return Long.bitCount(fingerprint1 ^ fingerprint2);
+  }
+
+  /*
+    Spreads the FNV hash over all bits (finalizer of MurmurHash3).
+   */
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Stefan Heindorf, Yan Scholten, Henning Wachsmuth,
+ * Axel-Cyrille Ngonga Ngomo, Martin Potthast
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/*
+  Compressed byte offsets of the gzip members of a .warc.gz file. ClueWeb12
+  compresses every WARC record as a separate gzip member, hence reading can
+  start at any offset of the index. This allows to split a single file into
+  shards that are processed by different threads or JVMs, and to resume a
+  file after a crash.
+
+  The index is stored next to the WARC file with one offset per line.
+ */
+public final class WarcOffsetIndex {
+
+  public static final String INDEX_SUFFIX = ".idx";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int GZIP_MAGIC_1 = 0x1f;
+  private static final int GZIP_MAGIC_2 = 0x8b;
+  private static final int GZIP_TRAILER_SIZE = 8;
+  private static final int FLAG_HCRC = 2;
+  private static final int FLAG_EXTRA = 4;
+  private static final int FLAG_NAME = 8;
+  private static final int FLAG_COMMENT = 16;
+
+  private final long[] offsets;
+  private final long fileLength;
+
+  private WarcOffsetIndex(final long[] offsets, final long fileLength) {
+    this.offsets = offsets;
+    this.fileLength = fileLength;
+  }
+
+  public static WarcOffsetIndex loadOrBuild(final String path)
+          throws IOException {
+    File index = new File(path + INDEX_SUFFIX);
+    if (index.exists()) {
+      return load(path);
+    }
+    WarcOffsetIndex built = build(path);
+    built.save(path);
+    return built;
+  }
+
+  public static WarcOffsetIndex load(final String path) throws IOException {
+    LinkedList<Long> offsets = new LinkedList<>();
+    try (BufferedReader br = new BufferedReader(
+            new FileReader(path + INDEX_SUFFIX))) {
+      String line;
+      while ((line = br.readLine()) != null) {
+        if (!line.trim().isEmpty()) {
+          offsets.add(Long.parseLong(line.trim()));
+        }
+      }
+    }
+    return new WarcOffsetIndex(
+            offsets.stream().mapToLong(Long::longValue).toArray(),
+            new File(path).length());
+  }
+
+  /*
+    Decompresses the file member by member and records the offset at
+    which each member starts.
+   */
+  public static WarcOffsetIndex build(final String path) throws IOException {
+    long[] offsets = new long[1024];
+    int size = 0;
+
+    try (MemberScanner scanner = new MemberScanner(path)) {
+      long offset;
+      while ((offset = scanner.nextMember()) >= 0) {
+        if (size == offsets.length) {
+          offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        offsets[size++] = offset;
+      }
+    }
+    return new WarcOffsetIndex(Arrays.copyOf(offsets, size),
+            new File(path).length());
+  }
+
+  /*
+    Writes the index to a temporary file that is then renamed, so that a
+    crash never leaves a truncated index that loadOrBuild would trust.
+   */
+  public void save(final String path) throws IOException {
+    Path index = Paths.get(path + INDEX_SUFFIX);
+    Path temporary = Paths.get(path + INDEX_SUFFIX + ".tmp");
+    try (PrintWriter pw = new PrintWriter(temporary.toFile())) {
+      for (long offset : offsets) {
+        pw.println(offset);
+      }
+      if (pw.checkError()) {
+        throw new IOException("Failed to write " + temporary);
+      }
+    }
+    Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  public int size() {
+    return offsets.length;
+  }
+
+  /*
+    Splits the file into ranges [start, end) of at most recordsPerShard
+    gzip members each.
+   */
+  public LinkedList<long[]> split(final int recordsPerShard) {
+    LinkedList<long[]> shards = new LinkedList<>();
+    for (int i = 0; i < offsets.length; i += recordsPerShard) {
+      int next = i + recordsPerShard;
+      long end = next < offsets.length ? offsets[next] : fileLength;
+      shards.add(new long[]{offsets[i], end});
+    }
+    return shards;
+  }
+
+  private static final class MemberScanner implements AutoCloseable {
+
+    private final InputStream in;
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] input = new byte[BUFFER_SIZE];
+    private final byte[] output = new byte[BUFFER_SIZE];
+    private int inputLength = 0;
+    private int inputPosition = 0;
+    private long inputOffset = 0;
+
+    MemberScanner(final String path) throws IOException {
+      in = new FileInputStream(path);
+    }
+
+    /*
+      Returns the offset of the next member, or -1 at the end of the file.
+     */
+    long nextMember() throws IOException {
+      if (!ensureInput()) {
+        return -1;
+      }
+      long start = inputOffset + inputPosition;
+      skipHeader();
+      inflateMember();
+      skip(GZIP_TRAILER_SIZE);
+      return start;
+    }
+
+    /*
+      Parsing example (RFC 1952):
+          1f 8b 08 FLG MTIME(4) XFL OS [XLEN(2) EXTRA] [NAME 0] [COMMENT 0]
+          [HCRC(2)]
+     */
+    private void skipHeader() throws IOException {
+      if (readByte() != GZIP_MAGIC_1 || readByte() != GZIP_MAGIC_2) {
+        throw new ZipException("Not in GZIP format");
+      }
+      readByte();
+      int flags = readByte();
+      skip(6);
+      if ((flags & FLAG_EXTRA) != 0) {
+        skip(readByte() | (readByte() << 8));
+      }
+      if ((flags & FLAG_NAME) != 0) {
+        while (readByte() != 0) {
+          // skip file name
+        }
+      }
+      if ((flags & FLAG_COMMENT) != 0) {
+        while (readByte() != 0) {
+          // skip comment
+        }
+      }
+      if ((flags & FLAG_HCRC) != 0) {
+        skip(2);
+      }
+    }
+
+    private void inflateMember() throws IOException {
+      inflater.reset();
+      try {
+        while (!inflater.finished()) {
+          if (inflater.needsInput()) {
+            if (!ensureInput()) {
+              throw new EOFException("Unexpected end of GZIP member");
+            }
+            inflater.setInput(input, inputPosition,
+                    inputLength - inputPosition);
+            inputPosition = inputLength;
+          }
+          inflater.inflate(output);
+        }
+      } catch (DataFormatException e) {
+        throw new ZipException(e.getMessage());
+      }
+      inputPosition = inputLength - inflater.getRemaining();
+    }
+
+    private boolean ensureInput() throws IOException {
+      while (inputPosition == inputLength) {
+        inputOffset += inputLength;
+        inputPosition = 0;
+        inputLength = in.read(input);
+        if (inputLength < 0) {
+          inputLength = 0;
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int readByte() throws IOException {
+      if (!ensureInput()) {
+        throw new EOFException("Unexpected end of GZIP header");
+      }
+      return input[inputPosition++] & 0xFF;
+    }
+
+    private void skip(final int n) throws IOException {
+      for (int i = 0; i < n; i++) {
+        readByte();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      inflater.end();
+      in.close();
+    }
+  }
+}
@@ -22,6 +22,8 @@ public abstract class JerichoHtmlSentenceExtractor {
 
   private boolean extractAltTexts = true;
 
+  private boolean streamParagraphs = true;
+
   /**
    * Creates a new extractor that only extracts English paragraphs and does not
    * separate the output sentences by the paragraphs they came from.
@@ -41,6 +43,14 @@ public abstract class JerichoHtmlSentenceExtractor {
     this.separateParagraphs = true;
   }
 
+  /**
+   * Sets whether paragraphs are extracted in a single pass over the tag stream
+   * ({@link StreamingParagraphExtractor}, the default) or from the output of
+   * the Jericho Renderer.
+   */
+  public void setStreamParagraphs(final boolean streamParagraphs) {
+    this.streamParagraphs = streamParagraphs;
+  }
 
   //////////////////////////////////////////////////////////////////////////////
   //                               FUNCTIONALITY                              //
@@ -52,22 +62,21 @@ public abstract class JerichoHtmlSentenceExtractor {
         return null;
       }
 
-      final List<String> paragraphs = this.extractParagraphs(htmlInput);
-      if (paragraphs == null) {
-        return null;
-      }
       final List<String> sentences = new ArrayList<>();
-      boolean firstParagraph = true;
-      for (final String paragraph : paragraphs) {
-        final List<String> paragraphSentences =
-                this.extractSentencesFromParagraph(paragraph);
-        if (!paragraphSentences.isEmpty()) {
-          if (firstParagraph) {
-            firstParagraph = false;
-          } else if (this.separateParagraphs) {
-            sentences.add(this.paragraphSeparator);
-          }
-          sentences.addAll(paragraphSentences);
+      if (this.streamParagraphs) {
+        final StreamingParagraphExtractor paragraphExtractor =
+                new StreamingParagraphExtractor(this.extractAltTexts);
+        if (!paragraphExtractor.extract(htmlInput, this.getMinParagraphLength(),
+                paragraph -> this.addSentences(paragraph, sentences))) {
+          return null;
+        }
+      } else {
+        final List<String> paragraphs = this.extractParagraphs(htmlInput);
+        if (paragraphs == null) {
+          return null;
+        }
+        for (final String paragraph : paragraphs) {
+          this.addSentences(paragraph, sentences);
         }
       }
       return sentences;
@@ -76,6 +85,22 @@ public abstract class JerichoHtmlSentenceExtractor {
     }
   }
 
+  /**
+   * Extracts the sentences from the paragraph and adds them to the list,
+   * preceded by the paragraph separator if the list is not empty.
+   */
+  private void addSentences(
+          final String paragraph, final List<String> sentences) {
+    final List<String> paragraphSentences =
+            this.extractSentencesFromParagraph(paragraph);
+    if (!paragraphSentences.isEmpty()) {
+      if (!sentences.isEmpty() && this.separateParagraphs) {
+        sentences.add(this.paragraphSeparator);
+      }
+      sentences.addAll(paragraphSentences);
+    }
+  }
+
   /**
    * Renders the HTML page with Jericho, normalizes sequences
    * of whitespace characters to a single whitespace, and returns the list of
@@ -137,6 +162,17 @@ public abstract class JerichoHtmlSentenceExtractor {
     return sentences;
   }
 
+  /**
+   * Returns the length in characters below which paragraphs are discarded
+   * before their sentences are extracted.
+   * <p>
+   * The default implementation of this method returns 0.
+   * </p>
+   */
+  protected int getMinParagraphLength() {
+    return 0;
+  }
+
   /**
    * Checks whether given paragraph of given language should be extracted.
    * <p>
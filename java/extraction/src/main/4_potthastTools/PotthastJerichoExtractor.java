@@ -1,4 +1,3 @@
-import java.util.List;
 import java.util.Locale;
 
 
@@ -28,9 +27,6 @@ import java.util.Locale;
  */
 public class PotthastJerichoExtractor extends JerichoHtmlSentenceExtractor {
 
-  public static final String DEFAULT_MATCHING_WORD_PATTERN =
-          "^\\p{IsAlphabetic}[-\\p{IsAlphabetic}]*\\p{IsAlphabetic}*$";
-
   public static final int DEFAULT_MIN_PARAGRAPH_LENGTH = 400;
 
   public static final int DEFAULT_MIN_NUM_STOP_WORDS_IN_SENTENCE = 1;
@@ -43,13 +39,7 @@ public class PotthastJerichoExtractor extends JerichoHtmlSentenceExtractor {
 
   private int minParagraphLengthInCharacters;
 
-  private StopWordFilter stopWordFilter;
-
-  private WordMatchFilter wordMatchFilter;
-
-  private final TextFilter stopWordTextFilter;
-
-  private final TextFilter wordMatchTextFilter;
+  private final SentenceQualityFilter sentenceFilter;
 
   //////////////////////////////////////////////////////////////////////////////
   //                                CONSTRUCTORS                              //
@@ -61,11 +51,9 @@ public class PotthastJerichoExtractor extends JerichoHtmlSentenceExtractor {
    */
   public PotthastJerichoExtractor(String pathStopWords) {
     this.setMinParagraphLengthInCharacters(DEFAULT_MIN_PARAGRAPH_LENGTH);
-    this.stopWordFilter = new StopWordFilter(pathStopWords, true);
-    this.wordMatchFilter = new WordMatchFilter(DEFAULT_MATCHING_WORD_PATTERN);
-    this.stopWordTextFilter = new TextFilter(this.stopWordFilter);
+    this.sentenceFilter = new SentenceQualityFilter(
+            new StopWordList(pathStopWords, Locale.ENGLISH).getStopWordList());
     this.setMinStopWordsInSentence(DEFAULT_MIN_NUM_STOP_WORDS_IN_SENTENCE);
-    this.wordMatchTextFilter = new TextFilter(this.wordMatchFilter);
     this.setMinMatchingWordRatioInSentence(DEFAULT_MIN_MATCHING_WORD_RATIO);
   }
 
@@ -76,12 +64,18 @@ public class PotthastJerichoExtractor extends JerichoHtmlSentenceExtractor {
 
   public void setMinStopWordsInSentence(
           final int minStopWordsInSentence) {
-    this.stopWordTextFilter.setMinAbsolute(minStopWordsInSentence);
+    this.sentenceFilter.setMinStopWords(minStopWordsInSentence);
   }
 
   public void setMinMatchingWordRatioInSentence(
           final double minMatchingWordRatioInSentence) {
-    this.wordMatchTextFilter.setMinRatio(minMatchingWordRatioInSentence);
+    this.sentenceFilter.setMinMatchingWordRatio(
+            minMatchingWordRatioInSentence);
+  }
+
+  @Override
+  protected int getMinParagraphLength() {
+    return this.minParagraphLengthInCharacters;
   }
 
   @Override
@@ -93,10 +87,7 @@ public class PotthastJerichoExtractor extends JerichoHtmlSentenceExtractor {
   @Override
   protected boolean isValidSentence(
           final String sentence, final Locale paragraphLanguage) {
-    final List<String> words = WordFilter.toWords(sentence, paragraphLanguage);
-
-    return this.stopWordTextFilter.test(words, paragraphLanguage)
-            && this.wordMatchTextFilter.test(words, paragraphLanguage);
+    return this.sentenceFilter.test(sentence);
   }
 
 }
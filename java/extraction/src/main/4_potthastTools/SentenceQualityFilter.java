@@ -0,0 +1,152 @@
+/**
+ * Tests whether a sentence has enough stop words and enough words that
+ * consist of alphabetic characters only, in a single pass.
+ * <p>
+ * The sentence is scanned character by character. Words are segmented
+ * approximately like the ICU word {@link com.ibm.icu.text.BreakIterator}:
+ * letters, digits and marks form words, which may contain apostrophes,
+ * periods and colons between letters and periods, commas and semicolons
+ * between digits; every other non-whitespace character is a word of its
+ * own. Stop words are looked up in a {@link StopWordTrie} while the word is
+ * scanned. Hyphens end a word, so hyphenated words count as several
+ * alphabetic words. No objects are created per sentence or word.
+ * </p>
+ */
+public class SentenceQualityFilter {
+
+  private static final String LETTER_JOINERS =
+          ":'.\u00B7\u0387\u2018\u2019\u2024\u2027\uFE13\uFE52\uFE55"
+          + "\uFF07\uFF0E\uFF1A";
+
+  private static final String DIGIT_JOINERS =
+          ",;.'\u037E\u2019\u2024\uFE50\uFE52\uFE54\uFF07\uFF0C"
+          + "\uFF0E\uFF1B";
+
+  private final StopWordTrie stopWords;
+
+  private int minStopWords;
+
+  private double minMatchingWordRatio;
+
+  /**
+   * Creates a new filter for the given stop words that accepts every
+   * sentence with at least one word.
+   */
+  public SentenceQualityFilter(final String[] stopWords) {
+    this.stopWords = new StopWordTrie(stopWords);
+    this.setMinStopWords(0);
+    this.setMinMatchingWordRatio(0.0);
+  }
+
+  /**
+   * Sets the minimum number of stop words in a sentence.
+   */
+  public void setMinStopWords(final int minStopWords) {
+    if (minStopWords < 0) {
+      throw new IllegalArgumentException("Negative threshold: " + minStopWords);
+    }
+    this.minStopWords = minStopWords;
+  }
+
+  /**
+   * Sets the minimum ratio of words (compared to all words in the sentence)
+   * that consist of alphabetic characters only.
+   */
+  public void setMinMatchingWordRatio(final double minMatchingWordRatio) {
+    if (minMatchingWordRatio < 0.0) {
+      throw new IllegalArgumentException(
+              "Negative ratio: " + minMatchingWordRatio);
+    }
+    this.minMatchingWordRatio = minMatchingWordRatio;
+  }
+
+  /**
+   * Tests whether the sentence contains enough stop words and enough
+   * alphabetic words. Sentences without words are rejected.
+   */
+  public boolean test(final CharSequence sentence) {
+    final int length = sentence.length();
+    int numWords = 0;
+    int numStopWords = 0;
+    int numMatchingWords = 0;
+
+    int i = 0;
+    while (i < length) {
+      final int codePoint = Character.codePointAt(sentence, i);
+      if (Character.isWhitespace(codePoint)
+              || Character.isSpaceChar(codePoint)) {
+        i += Character.charCount(codePoint);
+        continue;
+      }
+
+      ++numWords;
+      if (!isWordCharacter(codePoint)) {
+        i += Character.charCount(codePoint);
+        continue;
+      }
+
+      int node = this.stopWords.root();
+      boolean alphabetic = true;
+      int previous = -1;
+      while (i < length) {
+        final int current = Character.codePointAt(sentence, i);
+        if (!isWordCharacter(current)
+                && !joins(previous, current, sentence, i)) {
+          break;
+        }
+        alphabetic &= Character.isAlphabetic(current);
+        node = this.stopWords.step(node, current);
+        previous = current;
+        i += Character.charCount(current);
+      }
+
+      if (this.stopWords.isWord(node)) {
+        ++numStopWords;
+      }
+      if (alphabetic) {
+        ++numMatchingWords;
+      }
+    }
+
+    if (numWords == 0) {
+      return false;
+    }
+    return numStopWords >= this.minStopWords
+            && ((double) numMatchingWords) / numWords
+            >= this.minMatchingWordRatio;
+  }
+
+  private static boolean isWordCharacter(final int codePoint) {
+    if (Character.isLetterOrDigit(codePoint) || codePoint == '_') {
+      return true;
+    }
+    final int type = Character.getType(codePoint);
+    return type == Character.NON_SPACING_MARK
+            || type == Character.COMBINING_SPACING_MARK
+            || type == Character.ENCLOSING_MARK;
+  }
+
+  /**
+   * Checks whether the character at given position connects the previous
+   * and the next character to one word, like in "don't", "e.g" or "1,000".
+   */
+  private static boolean joins(final int previous, final int current,
+          final CharSequence sentence, final int position) {
+    if (previous < 0 || current > Character.MAX_VALUE) {
+      return false;
+    }
+    final int next = position + 1;
+    if (next >= sentence.length()) {
+      return false;
+    }
+    final int following = Character.codePointAt(sentence, next);
+    if (Character.isLetter(previous) && Character.isLetter(following)) {
+      return LETTER_JOINERS.indexOf(current) >= 0;
+    }
+    if (Character.isDigit(previous) && Character.isDigit(following)) {
+      return DIGIT_JOINERS.indexOf(current) >= 0;
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/**
+ * A case-folding character trie of stop words.
+ * <p>
+ * Lookups walk the trie one code point at a time, so a word can be checked
+ * while it is scanned, without creating a (lower-cased) String for it.
+ * </p>
+ */
+public class StopWordTrie {
+
+  /**
+   * Node that is returned when a walk leaves the trie.
+   */
+  public static final int NONE = -1;
+
+  private static final int ROOT = 0;
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private int[] labels = new int[INITIAL_CAPACITY];
+
+  private int[] firstChild = new int[INITIAL_CAPACITY];
+
+  private int[] nextSibling = new int[INITIAL_CAPACITY];
+
+  private boolean[] terminal = new boolean[INITIAL_CAPACITY];
+
+  private int size;
+
+  /**
+   * Creates a trie that contains the given words, ignoring case.
+   */
+  public StopWordTrie(final String[] words) {
+    this.size = 1;
+    this.firstChild[ROOT] = NONE;
+    this.nextSibling[ROOT] = NONE;
+    for (final String word : words) {
+      this.add(word);
+    }
+  }
+
+  /**
+   * Gets the root node at which each walk starts.
+   */
+  public int root() {
+    return ROOT;
+  }
+
+  /**
+   * Gets the child of given node for given code point, ignoring case, or
+   * {@link #NONE} if there is none.
+   */
+  public int step(final int node, final int codePoint) {
+    if (node == NONE) {
+      return NONE;
+    }
+    final int label = Character.toLowerCase(codePoint);
+    for (int child = this.firstChild[node]; child != NONE;
+            child = this.nextSibling[child]) {
+      if (this.labels[child] == label) {
+        return child;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Checks whether the walk to given node spelled a complete stop word.
+   */
+  public boolean isWord(final int node) {
+    return node != NONE && this.terminal[node];
+  }
+
+  private void add(final String word) {
+    int node = ROOT;
+    for (int i = 0; i < word.length(); ) {
+      final int codePoint = word.codePointAt(i);
+      i += Character.charCount(codePoint);
+
+      int child = this.step(node, codePoint);
+      if (child == NONE) {
+        child = this.newNode(Character.toLowerCase(codePoint));
+        this.nextSibling[child] = this.firstChild[node];
+        this.firstChild[node] = child;
+      }
+      node = child;
+    }
+    if (node != ROOT) {
+      this.terminal[node] = true;
+    }
+  }
+
+  private int newNode(final int label) {
+    if (this.size == this.labels.length) {
+      final int capacity = this.size * 2;
+      this.labels = Arrays.copyOf(this.labels, capacity);
+      this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+      this.nextSibling = Arrays.copyOf(this.nextSibling, capacity);
+      this.terminal = Arrays.copyOf(this.terminal, capacity);
+    }
+    final int node = this.size++;
+    this.labels[node] = label;
+    this.firstChild[node] = NONE;
+    this.nextSibling[node] = NONE;
+    return node;
+  }
+
+}
@@ -0,0 +1,165 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import net.htmlparser.jericho.CharacterReference;
+import net.htmlparser.jericho.EndTag;
+import net.htmlparser.jericho.Segment;
+import net.htmlparser.jericho.StartTag;
+import net.htmlparser.jericho.StreamedSource;
+import net.htmlparser.jericho.Tag;
+
+/**
+ * Extracts the paragraphs of an HTML page in a single pass over the tag
+ * stream of a Jericho {@link StreamedSource}, without rendering the page.
+ * <p>
+ * Paragraphs are delimited by block-level elements, the text of
+ * <tt>script</tt> and <tt>style</tt> elements is skipped,
+ * and sequences of whitespace characters are normalized to a single
+ * whitespace while the text is read. Paragraphs shorter than the minimum
+ * length are discarded before a String is created for them, and all other
+ * paragraphs are passed to the consumer as soon as they are complete.
+ * </p><p>
+ * The paragraphs approximate the lines of the Jericho Renderer output
+ * without the list bullets, table cells of a row form one paragraph.
+ * </p>
+ */
+public class StreamingParagraphExtractor {
+
+  private static final Set<String> BLOCK_ELEMENTS = new HashSet<>(
+          Arrays.asList("address", "article", "aside", "blockquote", "br",
+                  "caption", "center", "dd", "dir", "div", "dl", "dt",
+                  "fieldset", "figcaption", "figure", "footer", "form", "h1",
+                  "h2", "h3", "h4", "h5", "h6", "header", "hr", "li", "main",
+                  "menu", "nav", "ol", "option", "p", "pre", "section",
+                  "select", "table", "tbody", "textarea", "tfoot", "thead",
+                  "title", "tr", "ul"));
+
+  private static final Set<String> INLINE_SEPARATORS = new HashSet<>(
+          Arrays.asList("td", "th", "img"));
+
+  private static final Set<String> SKIPPED_ELEMENTS = new HashSet<>(
+          Arrays.asList("script", "style"));
+
+  private final boolean extractAltTexts;
+
+  /**
+   * Creates a new extractor that includes the alternate texts of images if
+   * <tt>extractAltTexts</tt> is true.
+   */
+  public StreamingParagraphExtractor(final boolean extractAltTexts) {
+    this.extractAltTexts = extractAltTexts;
+  }
+
+  /**
+   * Passes all paragraphs of the HTML page with at least
+   * <tt>minParagraphLength</tt> characters to the consumer. Returns
+   * <tt>false</tt> on a fatal parsing error.
+   */
+  public boolean extract(final CharSequence htmlInput,
+          final int minParagraphLength,
+          final Consumer<String> paragraphConsumer) {
+    final StringBuilder paragraph = new StringBuilder();
+    String skippedElement = null;
+
+    try {
+      final StreamedSource source = new StreamedSource(htmlInput);
+      for (final Segment segment : source) {
+        if (segment instanceof Tag) {
+          final String name =
+                  ((Tag) segment).getName().toLowerCase(Locale.ROOT);
+          if (skippedElement != null) {
+            if (segment instanceof EndTag && name.equals(skippedElement)) {
+              skippedElement = null;
+            }
+            continue;
+          }
+
+          if (segment instanceof StartTag
+                  && SKIPPED_ELEMENTS.contains(name)
+                  && !((StartTag) segment).isEmptyElementTag()) {
+            skippedElement = name;
+            this.endParagraph(paragraph, minParagraphLength,
+                    paragraphConsumer);
+          } else if (BLOCK_ELEMENTS.contains(name)) {
+            this.endParagraph(paragraph, minParagraphLength,
+                    paragraphConsumer);
+          } else if (INLINE_SEPARATORS.contains(name)) {
+            appendWhitespace(paragraph);
+            if (this.extractAltTexts && segment instanceof StartTag
+                    && name.equals("img")) {
+              this.appendAltText((StartTag) segment, paragraph);
+            }
+          }
+        } else if (skippedElement == null) {
+          if (segment instanceof CharacterReference) {
+            appendText(paragraph, CharacterReference.decode(segment));
+          } else {
+            appendText(paragraph, source.getCurrentSegmentCharBuffer());
+          }
+        }
+      }
+      this.endParagraph(paragraph, minParagraphLength, paragraphConsumer);
+      return true;
+    } catch (final Error error) {
+      return false;
+    }
+  }
+
+  private void appendAltText(final StartTag img, final StringBuilder paragraph) {
+    final String altText = img.getAttributeValue("alt");
+    if (altText != null) {
+      appendText(paragraph, altText);
+      appendWhitespace(paragraph);
+    }
+  }
+
+  private void endParagraph(final StringBuilder paragraph,
+          final int minParagraphLength,
+          final Consumer<String> paragraphConsumer) {
+    int length = paragraph.length();
+    if (length > 0 && paragraph.charAt(length - 1) == ' ') {
+      --length;
+    }
+    if (length > 0 && length >= minParagraphLength) {
+      paragraphConsumer.accept(paragraph.substring(0, length));
+    }
+    paragraph.setLength(0);
+  }
+
+  private static void appendText(final StringBuilder paragraph,
+          final CharSequence text) {
+    final int length = text.length();
+    for (int i = 0; i < length; ++i) {
+      final char c = text.charAt(i);
+      if (isWhitespace(c)) {
+        appendWhitespace(paragraph);
+      } else {
+        paragraph.append(c);
+      }
+    }
+  }
+
+  /**
+   * Appends a whitespace unless the paragraph is empty or already ends with
+   * one.
+   */
+  private static void appendWhitespace(final StringBuilder paragraph) {
+    final int length = paragraph.length();
+    if (length > 0 && paragraph.charAt(length - 1) != ' ') {
+      paragraph.append(' ');
+    }
+  }
+
+  /**
+   * Same whitespace characters as <tt>\s</tt> in
+   * {@link JerichoHtmlSentenceExtractor#normalizeWhitespace(String)}.
+   */
+  private static boolean isWhitespace(final char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f'
+            || c == '\r';
+  }
+
+}
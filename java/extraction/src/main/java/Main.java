@@ -24,6 +24,7 @@
  *
  */
 
+import java.io.IOException;
 import java.util.Arrays;
 
 import org.apache.logging.log4j.LogManager;
@@ -40,13 +41,43 @@ public final class Main {
     logger.info("Arguments: ");
     Arrays.stream(args).forEach(logger::info);
 
-    if (args[0].contains("enwiki")) {
+    if (args[0].equals("index")) {
+      // build offset indexes of compressed WARC files
+      for (int i = 1; i < args.length; i++) {
+        try {
+          WarcOffsetIndex index = WarcOffsetIndex.build(args[i]);
+          index.save(args[i]);
+          logger.info("Indexed " + index.size() + " records of " + args[i]);
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    } else if (args[0].contains("enwiki")) {
       WikipediaParser p = new WikipediaParser();
 
       String wikipediaDump = args[0];
       String patterns = args[1];
       String output = args[2];
       p.parseDump(wikipediaDump, patterns, output);
+    } else if (!args[0].contains(".warc")) {
+      // directory or manifest of WARC files
+      String patterns = args[1];
+      String enStopWordList = args[2];
+      String output = args[3];
+      int nFileThreads = args.length > 4
+              ? Integer.parseInt(args[4])
+              : ClueWebCorpusParser.N_FILE_THREADS;
+      ClueWebCorpusParser parser = new ClueWebCorpusParser(
+              patterns, enStopWordList, output, nFileThreads);
+      if (args.length > 5) {
+        parser.setRecordsPerShard(Integer.parseInt(args[5]));
+      }
+      if (args.length > 6) {
+        parser.setNearDuplicateIndexSize(Integer.parseInt(args[6]));
+      }
+
+      String clueWebInput = args[0];
+      parser.parse(clueWebInput);
     } else {
       String patterns = args[1];
       String enStopWordList = args[2];
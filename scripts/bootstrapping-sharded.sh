@@ -0,0 +1,22 @@
+#!/bin/bash
+## variables
+jar="./java/bootstrapping/target/bootstrapping-1.0-SNAPSHOT-jar-with-dependencies.jar"
+data0="data/bootstrapping/seeds.csv"
+data1="data/lucene-index/"
+data2="data/bootstrapping/"
+shards=4
+port=4000
+
+## processing
+# one worker per shard of an index built with
+# java -jar $jar index <sentences> $data1 <threads> <RAM buffer> 0 $shards
+# (workers may also run on other machines, see the addresses below)
+addresses=""
+for ((i = 0; i < shards; i++)); do
+  java -jar -Xmx32G $jar worker $data1/shard-$i $((port + i)) &
+  addresses="$addresses,localhost:$((port + i))"
+done
+
+# the coordinator waits until all workers have loaded their shard
+java -jar -Xmx16G $jar $data0 "shards:${addresses:1}" $data2
+wait